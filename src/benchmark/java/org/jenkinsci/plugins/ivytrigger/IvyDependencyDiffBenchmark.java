@@ -0,0 +1,132 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import hudson.util.StreamTaskListener;
+import org.apache.commons.io.output.NullOutputStream;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the comparison of two dependency graphs, as done at the end of every poll.
+ * <p/>
+ * The graphs are synthetic: every dependency has two artifacts and one dependency out of ten
+ * is resolved from a dynamic revision. The scenarios are:
+ * <ul>
+ * <li>NO_CHANGE: the graphs are equal, the most frequent poll</li>
+ * <li>SINGLE_CHANGE: one artifact has a new publication date</li>
+ * <li>REVISION_ONLY_CHANGE: the dynamic dependencies are resolved to a new revision, with the same artifacts</li>
+ * <li>MASS_CHANGE: every artifact has a new publication date</li>
+ * </ul>
+ * Run with {@code mvn -P benchmark integration-test}, the gc profiler reports the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IvyDependencyDiffBenchmark {
+
+    public enum Scenario {
+        NO_CHANGE, SINGLE_CHANGE, REVISION_ONLY_CHANGE, MASS_CHANGE
+    }
+
+    private static final long PUBLICATION_DATE = 1400000000000L;
+
+    @Param({"10", "1000", "10000", "50000"})
+    public int dependencyCount;
+
+    @Param({"NO_CHANGE", "SINGLE_CHANGE", "REVISION_ONLY_CHANGE", "MASS_CHANGE"})
+    public Scenario scenario;
+
+    @Param({"false"})
+    public boolean debug;
+
+    private IvyTriggerContext previousContext;
+
+    private IvyTriggerContext newContext;
+
+    private XTriggerLog log;
+
+    private IvyTrigger trigger;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        previousContext = new IvyTriggerContext(createDependencies(dependencyCount, Scenario.NO_CHANGE));
+        newContext = new IvyTriggerContext(createDependencies(dependencyCount, scenario));
+        //the log is written as it is at a poll, to a stream dropping the bytes
+        log = new XTriggerLog(new StreamTaskListener(new NullOutputStream(), Charset.forName("UTF-8")));
+        trigger = new IvyTrigger("* * * * *", "ivy.xml", "ivysettings.xml", null, null, null, false, false, debug, false, false, false);
+    }
+
+    /**
+     * Installs the previous context before each comparison: the new context is only recorded over the one it is compared with
+     */
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        trigger.setNewContext(previousContext);
+    }
+
+    /**
+     * The comparison alone
+     */
+    @Benchmark
+    public IvyDependencyDiff compute() {
+        return IvyDependencyDiff.compute(previousContext.getDependencies(), newContext.getDependencies());
+    }
+
+    /**
+     * The comparison and the log of the changes
+     */
+    @Benchmark
+    public IvyDependencyDiff computeAndLog() {
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousContext.getDependencies(), newContext.getDependencies());
+        diff.log(new IvyTriggerPollLog(log, debug));
+        return diff;
+    }
+
+    /**
+     * The whole end of a poll: the log of the resolved dependencies, the recording of the new context and the comparison
+     */
+    @Benchmark
+    public boolean checkIfModified() throws Exception {
+        return trigger.checkIfModified(previousContext, newContext, log);
+    }
+
+    static Map<String, IvyDependencyValue> createDependencies(int dependencyCount, Scenario scenario) {
+        Map<String, IvyDependencyValue> dependencies = new HashMap<String, IvyDependencyValue>();
+        for (int i = 0; i < dependencyCount; i++) {
+            boolean dynamic = (i % 10 == 0);
+            String name = "module-" + i;
+            String revision = (dynamic && scenario == Scenario.REVISION_ONLY_CHANGE) ? "1.1" : "1.0";
+            String dependencyId = "org.example#" + name + ";" + (dynamic ? "latest.integration" : revision);
+
+            long publicationDate = PUBLICATION_DATE;
+            if (scenario == Scenario.MASS_CHANGE || (scenario == Scenario.SINGLE_CHANGE && i == dependencyCount / 2)) {
+                publicationDate += 60000;
+            }
+            List<IvyArtifactValue> artifacts = new ArrayList<IvyArtifactValue>(2);
+            artifacts.add(new IvyArtifactValue(name, "jar", publicationDate));
+            artifacts.add(new IvyArtifactValue(name + "-sources", "jar", PUBLICATION_DATE));
+            dependencies.put(dependencyId, new IvyDependencyValue(revision, artifacts));
+        }
+        return dependencies;
+    }
+}
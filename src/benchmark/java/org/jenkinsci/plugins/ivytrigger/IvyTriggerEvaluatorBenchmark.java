@@ -0,0 +1,202 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a call of the {@link IvyTriggerEvaluator} on the polling node, end to end:
+ * the lookup of the files, the settings load, the resolve and the read of the artifact metadata.
+ * <p/>
+ * The Ivy repository is generated on the local file system, so the benchmark runs offline:
+ * {@code moduleCount} modules over {@code depth} levels, every module depending on two modules of the next level
+ * and publishing one jar of {@code artifactSize} bytes. The Ivy file of the job depends on the modules of the first level.
+ * <ul>
+ * <li>COLD: the repository cache is emptied before every call, the artifacts are downloaded again</li>
+ * <li>WARM: the repository cache is kept, the resolve reads the cached metadata and artifacts</li>
+ * </ul>
+ * Every call gets a new variable, so that it neither joins the resolve of the previous call nor reuses its Ivy instance.
+ * Run with {@code mvn -P benchmark integration-test -Djmh.args=IvyTriggerEvaluatorBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class IvyTriggerEvaluatorBenchmark {
+
+    public enum Cache {
+        COLD, WARM
+    }
+
+    private static final String ORGANISATION = "org.example";
+
+    private static final String REVISION = "1.0";
+
+    @Param({"50", "500"})
+    public int moduleCount;
+
+    @Param({"3"})
+    public int depth;
+
+    @Param({"10240"})
+    public int artifactSize;
+
+    @Param({"COLD", "WARM"})
+    public Cache cache;
+
+    private File baseDir;
+
+    private File launchDir;
+
+    private File ivyFile;
+
+    private File settingsFile;
+
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        baseDir = File.createTempFile("ivy-trigger-benchmark", "");
+        baseDir.delete();
+        launchDir = new File(baseDir, "node");
+        launchDir.mkdirs();
+        File repositoryDir = new File(baseDir, "repository");
+        List<String> firstLevelModules = generateRepository(repositoryDir);
+        ivyFile = new File(baseDir, "ivy.xml");
+        FileUtils.writeStringToFile(ivyFile, getIvyDescriptor("job", firstLevelModules, null));
+        settingsFile = new File(baseDir, "ivysettings.xml");
+        FileUtils.writeStringToFile(settingsFile, getSettings(repositoryDir));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws IOException {
+        if (cache == Cache.COLD) {
+            FileUtils.deleteDirectory(new File(launchDir, "ivy-trigger-cache"));
+        }
+        invocation++;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Benchmark
+    public IvyTriggerEvaluatorResult invoke() throws Exception {
+        Map<String, String> envVars = new HashMap<String, String>();
+        envVars.put("BENCHMARK_INVOCATION", String.valueOf(invocation));
+        IvyTriggerEvaluator evaluator = new IvyTriggerEvaluator("benchmark",
+                Collections.singletonList(ivyFile.getAbsolutePath()),
+                Collections.singletonList(settingsFile.getAbsolutePath()),
+                Collections.<List<String>>emptyList(),
+                null,
+                false,
+                envVars,
+                false,
+                false,
+                false,
+                null,
+                false,
+                new IvyTriggerCacheSettings(false, 0, 0));
+        IvyTriggerEvaluatorResult result = evaluator.invoke(launchDir, null);
+        if (result.getDependencies() == null || result.getDependencies().size() != moduleCount) {
+            throw new IllegalStateException("The generated repository was not resolved:\n" + result.getLog());
+        }
+        return result;
+    }
+
+    /**
+     * Generates the modules, the last level first
+     *
+     * @return the names of the modules of the first level
+     */
+    private List<String> generateRepository(File repositoryDir) throws IOException {
+        Random random = new Random(0);
+        byte[] content = new byte[artifactSize];
+        List<String> nextLevelModules = Collections.emptyList();
+        int moduleIndex = moduleCount;
+        for (int level = depth - 1; level >= 0; level--) {
+            int levelModuleCount = (level == 0) ? moduleIndex : moduleCount / depth;
+            List<String> levelModules = new ArrayList<String>(levelModuleCount);
+            for (int i = 0; i < levelModuleCount; i++) {
+                String module = "module-" + (--moduleIndex);
+                File moduleDir = new File(repositoryDir, ORGANISATION + "/" + module + "/" + REVISION);
+                moduleDir.mkdirs();
+                List<String> dependencies = new ArrayList<String>(2);
+                if (!nextLevelModules.isEmpty()) {
+                    dependencies.add(nextLevelModules.get((2 * i) % nextLevelModules.size()));
+                    dependencies.add(nextLevelModules.get((2 * i + 1) % nextLevelModules.size()));
+                }
+                FileUtils.writeStringToFile(new File(moduleDir, "ivy-" + REVISION + ".xml"), getIvyDescriptor(module, dependencies, module));
+                random.nextBytes(content);
+                OutputStream artifactStream = new FileOutputStream(new File(moduleDir, module + "-" + REVISION + ".jar"));
+                try {
+                    artifactStream.write(content);
+                } finally {
+                    artifactStream.close();
+                }
+                levelModules.add(module);
+            }
+            nextLevelModules = levelModules;
+        }
+        return nextLevelModules;
+    }
+
+    private String getIvyDescriptor(String module, List<String> dependencies, String artifact) {
+        StringBuilder descriptor = new StringBuilder();
+        descriptor.append("<ivy-module version=\"2.0\">\n");
+        descriptor.append("  <info organisation=\"").append(ORGANISATION).append("\" module=\"").append(module)
+                .append("\" revision=\"").append(REVISION).append("\"/>\n");
+        descriptor.append("  <publications>\n");
+        if (artifact != null) {
+            descriptor.append("    <artifact name=\"").append(artifact).append("\" type=\"jar\" ext=\"jar\"/>\n");
+        }
+        descriptor.append("  </publications>\n");
+        descriptor.append("  <dependencies>\n");
+        for (String dependency : dependencies) {
+            descriptor.append("    <dependency org=\"").append(ORGANISATION).append("\" name=\"").append(dependency)
+                    .append("\" rev=\"").append(REVISION).append("\"/>\n");
+        }
+        descriptor.append("  </dependencies>\n");
+        descriptor.append("</ivy-module>\n");
+        return descriptor.toString();
+    }
+
+    private String getSettings(File repositoryDir) {
+        String root = repositoryDir.getAbsolutePath();
+        return "<ivysettings>\n"
+                + "  <settings defaultResolver=\"local\"/>\n"
+                + "  <resolvers>\n"
+                + "    <filesystem name=\"local\">\n"
+                + "      <ivy pattern=\"" + root + "/[organisation]/[module]/[revision]/ivy-[revision].xml\"/>\n"
+                + "      <artifact pattern=\"" + root + "/[organisation]/[module]/[revision]/[artifact]-[revision].[ext]\"/>\n"
+                + "    </filesystem>\n"
+                + "  </resolvers>\n"
+                + "</ivysettings>\n";
+    }
+}
@@ -0,0 +1,509 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import hudson.util.StreamTaskListener;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * I simulate the polls of many IvyTrigger jobs against one Ivy repository generated on the local file system,
+ * while modules are published to the repository at a given rate.
+ * <p/>
+ * Jenkins is not started, I stand in for it:
+ * <ul>
+ * <li>a timer starts the polls of all the jobs at every poll interval, as the cron does,
+ * then the polls go through the {@link IvyTriggerPollingScheduler} (jitter and limits) and run on a pool of polling threads;
+ * a poll still running when the next one is due is skipped</li>
+ * <li>a poll runs the {@link IvyTriggerEvaluator} in this JVM, then {@link IvyTrigger#checkIfModified} compares the contexts;
+ * the master and the polling node share the heap</li>
+ * </ul>
+ * The jobs depend on {@code latest.integration} revisions, a publish adds a new revision of a random module.
+ * A publish waits for the resolves reading the repository, so every poll knows the revisions it could see:
+ * a poll is expected to trigger when the revisions of its modules differ from the ones of its last build.
+ * A poll triggering without expected changes is a false trigger, a poll not triggering with expected changes
+ * is a missed (or delayed) trigger.
+ * <p/>
+ * Run with {@code mvn -P benchmark integration-test -Dbenchmark.main=org.jenkinsci.plugins.ivytrigger.IvyTriggerLoadSimulator
+ * -Dbenchmark.args="-jobs 1000 -publishesPerMinute 60"}, see {@link #DEFAULTS} for the options.
+ */
+public class IvyTriggerLoadSimulator {
+
+    private static final Map<String, String> DEFAULTS = new HashMap<String, String>();
+
+    static {
+        DEFAULTS.put("jobs", "200");
+        //the number of distinct Ivy files, the jobs with the same Ivy file share their resolves; 0 for one per job
+        DEFAULTS.put("distinctIvyFiles", "0");
+        DEFAULTS.put("modules", "200");
+        DEFAULTS.put("dependenciesPerJob", "10");
+        DEFAULTS.put("artifactSize", "1024");
+        DEFAULTS.put("publishesPerMinute", "30");
+        DEFAULTS.put("pollIntervalSeconds", "60");
+        DEFAULTS.put("durationSeconds", "600");
+        DEFAULTS.put("pollingThreads", "10");
+        DEFAULTS.put("maxConcurrentPolls", "0");
+        DEFAULTS.put("maxConcurrentPollsPerNode", "0");
+        DEFAULTS.put("maxPollingJitter", "0");
+        DEFAULTS.put("skipResolveIfUnchanged", "true");
+        DEFAULTS.put("sharedCache", "false");
+    }
+
+    private static final String ORGANISATION = "org.example";
+
+    private final Map<String, String> options;
+
+    private final File baseDir;
+
+    private final File repositoryDir;
+
+    private final File launchDir;
+
+    private final File settingsFile;
+
+    private final IvyTriggerCacheSettings cacheSettings;
+
+    /**
+     * The publishes wait for the resolves reading the repository
+     */
+    private final ReadWriteLock repositoryLock = new ReentrantReadWriteLock(true);
+
+    private final int[] moduleRevisions;
+
+    private final List<SimulatedJob> jobs = new ArrayList<SimulatedJob>();
+
+    private final ExecutorService pollingThreads;
+
+    private final ScheduledExecutorService timer = Executors.newScheduledThreadPool(2);
+
+    private final Random random = new Random(0);
+
+    private final List<Long> pollLatencies = Collections.synchronizedList(new ArrayList<Long>());
+
+    private final List<Long> pollDurations = Collections.synchronizedList(new ArrayList<Long>());
+
+    private final AtomicInteger polls = new AtomicInteger();
+
+    private final AtomicInteger skippedPolls = new AtomicInteger();
+
+    private final AtomicInteger queuedPolls = new AtomicInteger();
+
+    private final AtomicInteger failedPolls = new AtomicInteger();
+
+    private final AtomicInteger resolves = new AtomicInteger();
+
+    private final AtomicInteger sharedResolves = new AtomicInteger();
+
+    private final AtomicInteger skippedResolves = new AtomicInteger();
+
+    private final AtomicInteger publishes = new AtomicInteger();
+
+    private final AtomicInteger triggers = new AtomicInteger();
+
+    private final AtomicInteger expectedTriggers = new AtomicInteger();
+
+    private final AtomicInteger falseTriggers = new AtomicInteger();
+
+    private final AtomicInteger missedTriggers = new AtomicInteger();
+
+    private final AtomicLong maxUsedHeap = new AtomicLong();
+
+    public IvyTriggerLoadSimulator(Map<String, String> options) throws IOException {
+        this.options = options;
+        baseDir = File.createTempFile("ivy-trigger-load", "");
+        baseDir.delete();
+        repositoryDir = new File(baseDir, "repository");
+        launchDir = new File(baseDir, "node");
+        launchDir.mkdirs();
+        settingsFile = new File(baseDir, "ivysettings.xml");
+        cacheSettings = new IvyTriggerCacheSettings(getBoolean("sharedCache"), 0, 0);
+        moduleRevisions = new int[getInt("modules")];
+        pollingThreads = Executors.newFixedThreadPool(getInt("pollingThreads"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<String, String>(DEFAULTS);
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String name = args[i].replaceFirst("^-+", "");
+            if (!DEFAULTS.containsKey(name)) {
+                System.err.println("Unknown option " + args[i] + ", the options are " + DEFAULTS);
+                System.exit(1);
+            }
+            options.put(name, args[i + 1]);
+        }
+        System.out.println("Options: " + options);
+
+        IvyTriggerLoadSimulator simulator = new IvyTriggerLoadSimulator(options);
+        try {
+            simulator.setUp();
+            simulator.run();
+            simulator.report();
+        } finally {
+            simulator.tearDown();
+        }
+        System.exit(0);
+    }
+
+    private void setUp() throws Exception {
+        for (int i = 0; i < moduleRevisions.length; i++) {
+            publish(i);
+        }
+        publishes.set(0);
+        FileUtils.writeStringToFile(settingsFile, getSettings());
+
+        int distinctIvyFiles = getInt("distinctIvyFiles");
+        int jobCount = getInt("jobs");
+        int dependencyCount = Math.min(getInt("dependenciesPerJob"), moduleRevisions.length);
+        for (int i = 0; i < jobCount; i++) {
+            int template = (distinctIvyFiles <= 0) ? i : i % distinctIvyFiles;
+            //the modules of a template are always the same
+            Random templateRandom = new Random(template);
+            List<Integer> modules = new ArrayList<Integer>();
+            while (modules.size() < dependencyCount) {
+                int module = templateRandom.nextInt(moduleRevisions.length);
+                if (!modules.contains(module)) {
+                    modules.add(module);
+                }
+            }
+            File ivyFile = new File(baseDir, "jobs/job-" + i + "/ivy.xml");
+            FileUtils.writeStringToFile(ivyFile, getJobIvyDescriptor(template, modules));
+            jobs.add(new SimulatedJob("job-" + i, ivyFile, modules));
+        }
+
+        IvyTriggerPollingScheduler.get().configure(getInt("maxConcurrentPolls"), getInt("maxConcurrentPollsPerNode"), getInt("maxPollingJitter"));
+    }
+
+    private void run() throws Exception {
+        long pollInterval = TimeUnit.SECONDS.toMillis(getInt("pollIntervalSeconds"));
+        long duration = TimeUnit.SECONDS.toMillis(getInt("durationSeconds"));
+
+        timer.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                long tick = System.currentTimeMillis();
+                for (SimulatedJob job : jobs) {
+                    schedulePoll(job, tick);
+                }
+            }
+        }, 0, pollInterval, TimeUnit.MILLISECONDS);
+
+        int publishesPerMinute = getInt("publishesPerMinute");
+        if (publishesPerMinute > 0) {
+            timer.scheduleAtFixedRate(new Runnable() {
+                public void run() {
+                    try {
+                        publish(random.nextInt(moduleRevisions.length));
+                    } catch (IOException ioe) {
+                        ioe.printStackTrace();
+                    }
+                }
+            }, 0, TimeUnit.MINUTES.toMillis(1) / publishesPerMinute, TimeUnit.MILLISECONDS);
+        }
+
+        long start = System.currentTimeMillis();
+        long lastReport = start;
+        while (System.currentTimeMillis() - start < duration) {
+            Thread.sleep(1000);
+            Runtime runtime = Runtime.getRuntime();
+            long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+            if (usedHeap > maxUsedHeap.get()) {
+                maxUsedHeap.set(usedHeap);
+            }
+            if (System.currentTimeMillis() - lastReport >= TimeUnit.MINUTES.toMillis(1)) {
+                lastReport = System.currentTimeMillis();
+                System.out.println(String.format("%ss: %s polls, %s resolves, %s publishes, %s triggers",
+                        (lastReport - start) / 1000, polls.get(), resolves.get(), publishes.get(), triggers.get()));
+            }
+        }
+        timer.shutdownNow();
+        pollingThreads.shutdown();
+        pollingThreads.awaitTermination(10, TimeUnit.MINUTES);
+    }
+
+    private void schedulePoll(final SimulatedJob job, final long tick) {
+        if (!job.running.compareAndSet(false, true)) {
+            skippedPolls.incrementAndGet();
+            return;
+        }
+        IvyTriggerPollingScheduler.get().schedule(job.name, new Runnable() {
+            public void run() {
+                startPoll(job, tick);
+            }
+        });
+    }
+
+    private void startPoll(final SimulatedJob job, final long tick) {
+        pollingThreads.execute(new Runnable() {
+            public void run() {
+                boolean queued = false;
+                try {
+                    queued = !poll(job, tick);
+                } catch (Throwable t) {
+                    failedPolls.incrementAndGet();
+                    t.printStackTrace();
+                } finally {
+                    //a queued poll is started again by the scheduler, the job is still polling
+                    if (!queued) {
+                        job.running.set(false);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a poll as {@link IvyTrigger#checkIfModified(hudson.model.Node, XTriggerLog)} does
+     *
+     * @return false if the poll was queued by the polling limits
+     */
+    private boolean poll(final SimulatedJob job, final long tick) throws Exception {
+        long start = System.currentTimeMillis();
+        XTriggerLog log = new XTriggerLog(new StreamTaskListener(new NullOutputStream(), Charset.forName("UTF-8")));
+        IvyTriggerPollingScheduler.Permit permit = IvyTriggerPollingScheduler.get().tryAcquire(null, job, new Runnable() {
+            public void run() {
+                startPoll(job, tick);
+            }
+        });
+        if (permit == null) {
+            queuedPolls.incrementAndGet();
+            return false;
+        }
+        try {
+            IvyTriggerContext previousContext = job.trigger.getCurrentContext();
+            IvyTriggerEvaluator evaluator = new IvyTriggerEvaluator(job.name,
+                    Collections.singletonList(job.ivyFile.getAbsolutePath()),
+                    Collections.singletonList(settingsFile.getAbsolutePath()),
+                    Collections.<List<String>>emptyList(),
+                    null,
+                    false,
+                    Collections.<String, String>emptyMap(),
+                    getBoolean("skipResolveIfUnchanged"),
+                    false,
+                    false,
+                    (previousContext == null) ? null : job.lastResult,
+                    false,
+                    cacheSettings);
+
+            int[] revisions;
+            IvyTriggerEvaluatorResult result;
+            repositoryLock.readLock().lock();
+            try {
+                revisions = getRevisions(job.modules);
+                result = evaluator.invoke(launchDir, null);
+            } finally {
+                repositoryLock.readLock().unlock();
+            }
+            job.lastResult = result;
+            if (result.isUpToDate()) {
+                skippedResolves.incrementAndGet();
+            } else if (result.getTimings().getPhases().containsKey(IvyTriggerPollTimings.PHASE_SHARED_RESOLVE)) {
+                sharedResolves.incrementAndGet();
+            } else {
+                resolves.incrementAndGet();
+            }
+            if (result.getDependencies() == null && !result.isUpToDate()) {
+                failedPolls.incrementAndGet();
+                System.err.println(job.name + " can't resolve:\n" + result.getLog());
+                return true;
+            }
+
+            IvyTriggerContext newContext = (result.isUpToDate() && previousContext != null)
+                    ? previousContext
+                    : new IvyTriggerContext(result.getDependencies());
+            if (previousContext == null) {
+                job.trigger.setNewContext(newContext);
+                job.builtRevisions = revisions;
+                return true;
+            }
+
+            boolean triggered = job.trigger.checkIfModified(previousContext, newContext, log);
+            boolean expected = !Arrays.equals(revisions, job.builtRevisions);
+            if (triggered) {
+                triggers.incrementAndGet();
+                job.builtRevisions = revisions;
+            }
+            if (expected) {
+                expectedTriggers.incrementAndGet();
+            }
+            if (triggered && !expected) {
+                falseTriggers.incrementAndGet();
+            }
+            if (!triggered && expected) {
+                missedTriggers.incrementAndGet();
+            }
+            return true;
+        } finally {
+            permit.release();
+            long end = System.currentTimeMillis();
+            polls.incrementAndGet();
+            pollLatencies.add(end - tick);
+            pollDurations.add(end - start);
+        }
+    }
+
+    private int[] getRevisions(List<Integer> modules) {
+        int[] revisions = new int[modules.size()];
+        for (int i = 0; i < revisions.length; i++) {
+            revisions[i] = moduleRevisions[modules.get(i)];
+        }
+        return revisions;
+    }
+
+    /**
+     * Publishes a new revision of a module
+     */
+    private void publish(int module) throws IOException {
+        repositoryLock.writeLock().lock();
+        try {
+            int revision = moduleRevisions[module] + 1;
+            String moduleName = "module-" + module;
+            String revisionName = "1." + revision;
+            File revisionDir = new File(repositoryDir, ORGANISATION + "/" + moduleName + "/" + revisionName);
+            revisionDir.mkdirs();
+            FileUtils.writeStringToFile(new File(revisionDir, "ivy-" + revisionName + ".xml"),
+                    "<ivy-module version=\"2.0\">\n"
+                            + "  <info organisation=\"" + ORGANISATION + "\" module=\"" + moduleName + "\" revision=\"" + revisionName + "\" status=\"integration\"/>\n"
+                            + "  <publications>\n"
+                            + "    <artifact name=\"" + moduleName + "\" type=\"jar\" ext=\"jar\"/>\n"
+                            + "  </publications>\n"
+                            + "</ivy-module>\n");
+            byte[] content = new byte[getInt("artifactSize")];
+            random.nextBytes(content);
+            OutputStream artifactStream = new FileOutputStream(new File(revisionDir, moduleName + "-" + revisionName + ".jar"));
+            try {
+                artifactStream.write(content);
+            } finally {
+                artifactStream.close();
+            }
+            moduleRevisions[module] = revision;
+            publishes.incrementAndGet();
+        } finally {
+            repositoryLock.writeLock().unlock();
+        }
+    }
+
+    private String getJobIvyDescriptor(int template, List<Integer> modules) {
+        StringBuilder descriptor = new StringBuilder();
+        descriptor.append("<ivy-module version=\"2.0\">\n");
+        descriptor.append("  <info organisation=\"").append(ORGANISATION).append("\" module=\"job-template-").append(template).append("\"/>\n");
+        descriptor.append("  <dependencies>\n");
+        for (int module : modules) {
+            descriptor.append("    <dependency org=\"").append(ORGANISATION).append("\" name=\"module-").append(module)
+                    .append("\" rev=\"latest.integration\"/>\n");
+        }
+        descriptor.append("  </dependencies>\n");
+        descriptor.append("</ivy-module>\n");
+        return descriptor.toString();
+    }
+
+    private String getSettings() {
+        String root = repositoryDir.getAbsolutePath();
+        return "<ivysettings>\n"
+                + "  <settings defaultResolver=\"local\"/>\n"
+                + "  <resolvers>\n"
+                + "    <filesystem name=\"local\">\n"
+                + "      <ivy pattern=\"" + root + "/[organisation]/[module]/[revision]/ivy-[revision].xml\"/>\n"
+                + "      <artifact pattern=\"" + root + "/[organisation]/[module]/[revision]/[artifact]-[revision].[ext]\"/>\n"
+                + "    </filesystem>\n"
+                + "  </resolvers>\n"
+                + "</ivysettings>\n";
+    }
+
+    private void report() {
+        long durationSeconds = getInt("durationSeconds");
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long usedHeapAfterGc = runtime.totalMemory() - runtime.freeMemory();
+
+        System.out.println();
+        System.out.println(String.format("Polls: %s, skipped as still running: %s, queued by the limits: %s, failed: %s",
+                polls.get(), skippedPolls.get(), queuedPolls.get(), failedPolls.get()));
+        System.out.println(String.format("Resolves: %s (%.2f/s), shared: %s, skipped as up to date: %s",
+                resolves.get(), (double) resolves.get() / durationSeconds, sharedResolves.get(), skippedResolves.get()));
+        System.out.println("Poll latency from the cron tick (ms): " + getPercentiles(pollLatencies));
+        System.out.println("Poll duration from the polling thread start (ms): " + getPercentiles(pollDurations));
+        System.out.println(String.format("Publishes: %s", publishes.get()));
+        System.out.println(String.format("Triggers: %s, expected: %s, false: %s, missed or delayed: %s",
+                triggers.get(), expectedTriggers.get(), falseTriggers.get(), missedTriggers.get()));
+        System.out.println(String.format("Max used heap: %s MB, used heap after GC: %s MB, max heap: %s MB",
+                maxUsedHeap.get() >> 20, usedHeapAfterGc >> 20, runtime.maxMemory() >> 20));
+    }
+
+    private String getPercentiles(List<Long> values) {
+        List<Long> sortedValues;
+        synchronized (values) {
+            sortedValues = new ArrayList<Long>(values);
+        }
+        if (sortedValues.isEmpty()) {
+            return "no poll";
+        }
+        Collections.sort(sortedValues);
+        return String.format("p50 %s, p90 %s, p99 %s, max %s",
+                getPercentile(sortedValues, 50), getPercentile(sortedValues, 90), getPercentile(sortedValues, 99), sortedValues.get(sortedValues.size() - 1));
+    }
+
+    private long getPercentile(List<Long> sortedValues, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+        return sortedValues.get(Math.max(0, index));
+    }
+
+    private void tearDown() throws IOException {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    private int getInt(String option) {
+        return Integer.parseInt(options.get(option));
+    }
+
+    private boolean getBoolean(String option) {
+        return Boolean.parseBoolean(options.get(option));
+    }
+
+    private class SimulatedJob {
+
+        private final String name;
+
+        private final File ivyFile;
+
+        private final List<Integer> modules;
+
+        private final IvyTrigger trigger;
+
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private volatile IvyTriggerEvaluatorResult lastResult;
+
+        /**
+         * The revisions of the modules at the last build
+         */
+        private volatile int[] builtRevisions;
+
+        private SimulatedJob(String name, File ivyFile, List<Integer> modules) throws Exception {
+            this.name = name;
+            this.ivyFile = ivyFile;
+            this.modules = modules;
+            this.trigger = new IvyTrigger("* * * * *", ivyFile.getAbsolutePath(), settingsFile.getAbsolutePath(), null, null, null,
+                    false, false, false, getBoolean("skipResolveIfUnchanged"), false, false);
+        }
+    }
+}
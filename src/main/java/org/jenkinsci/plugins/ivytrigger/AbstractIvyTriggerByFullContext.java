@@ -31,6 +31,8 @@ import org.jenkinsci.lib.xtrigger.XTriggerContext;
 import org.jenkinsci.lib.xtrigger.XTriggerException;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
 
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import antlr.ANTLRException;
 
 /**
@@ -43,9 +45,14 @@ import antlr.ANTLRException;
  */
 public abstract class AbstractIvyTriggerByFullContext<C extends XTriggerContext> extends AbstractTrigger {
 
-    private transient C context;
+    /**
+     * The context of the previous poll, published with {@link #CONTEXT_UPDATER}: reading it never waits for a poll
+     */
+    private transient volatile C context;
 
-    private transient Object lock = new Object();
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<AbstractIvyTriggerByFullContext, XTriggerContext> CONTEXT_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractIvyTriggerByFullContext.class, XTriggerContext.class, "context");
 
     /**
      * Builds a trigger object
@@ -76,7 +83,7 @@ public abstract class AbstractIvyTriggerByFullContext<C extends XTriggerContext>
     @Override
     protected void start(Node pollingNode, BuildableItem project, boolean newInstance, XTriggerLog log) throws XTriggerException {
         if (isContextOnStartupFetched()) {
-            context = getContext(pollingNode, log);
+            setNewContext(getContext(pollingNode, log));
         }
     }
 
@@ -85,70 +92,54 @@ public abstract class AbstractIvyTriggerByFullContext<C extends XTriggerContext>
     @Override
     protected boolean checkIfModified(Node pollingNode, XTriggerLog log) throws XTriggerException {
 
-        // make sure the lock is not null; when de-serialising
-        if(lock==null){
-            lock = new Object();
-        }
-        
-        synchronized (lock) {
-
-            C newContext = getContext(pollingNode, log);
-
-            if (offlineSlaveOnStartup) {
-                log.info("No nodes were available at startup or at previous poll.");
-                log.info("Attempting to load old environment context from disk before checking if there are modifications.");
-                boolean contextWasReadFromFile = readContextFromFile(log);
-                offlineSlaveOnStartup = false;
-                if (!contextWasReadFromFile) {
-                    log.info("Old environment context was not read from disk: recording new context in-memory and checking changes in next poll.");
-                    setNewContext(newContext);
-                    return false;
-                }
+        //the new context is compared with the context current when the poll started,
+        //and only recorded over it: a context recorded by another poll in the meantime is never replaced by an older one
+        C expectedContext = context;
+
+        //the context is captured without holding any monitor: the readers of the current context don't wait for it
+        C newContext = getContext(pollingNode, log);
+
+        if (offlineSlaveOnStartup) {
+            log.info("No nodes were available at startup or at previous poll.");
+            log.info("Attempting to load old environment context from disk before checking if there are modifications.");
+            boolean contextWasReadFromFile = readContextFromFile(log);
+            offlineSlaveOnStartup = false;
+            if (!contextWasReadFromFile) {
+                log.info("Old environment context was not read from disk: recording new context in-memory and checking changes in next poll.");
+                compareAndSetContext(expectedContext, newContext);
+                return false;
             }
-
-            if (context == null) {
-                log.info("Old environment context in-memory is null.");
-                log.info("Attempting to load old environment context from disk before checking if there are modifications.");
-                boolean contextWasReadFromFile = readContextFromFile(log);
-                if (!contextWasReadFromFile) {
-                    log.info("Old environment context was not read from disk: recording new context in-memory and checking changes in next poll.");
-                    setNewContext(newContext);
-                    return false;
-                }
-            }
-
-            boolean changed = checkIfModified(context, newContext, log);
-            return changed;
+            expectedContext = context;
         }
+
+        return checkIfModifiedSincePreviousContext(expectedContext, newContext, log);
     }
 
     @Override
     protected boolean checkIfModified(XTriggerLog log) throws XTriggerException {
-        
-        // make sure the lock is not null; when de-serialising
-        if(lock==null){
-            lock = new Object();
-        }
-        
-        synchronized (lock) {
-            C newContext = getContext(log);
-
-            if (context == null) {
-                log.info("Old environment context in-memory is null.");
-                log.info("Attempting to load old environment context from disk before checking if there are modifications.");
-                boolean contextWasReadFromFile = readContextFromFile(log);
-                if (!contextWasReadFromFile) {
-                    log.info("Old environment context was not read from disk: recording new context in-memory and checking changes in next poll.");
-                    setNewContext(newContext);
-                    return false;
-                }
-            }
+        C expectedContext = context;
+        C newContext = getContext(log);
+        return checkIfModifiedSincePreviousContext(expectedContext, newContext, log);
+    }
 
-            boolean changed = checkIfModified(context, newContext, log);
-            return changed;
+    private boolean checkIfModifiedSincePreviousContext(C expectedContext, C newContext, XTriggerLog log) throws XTriggerException {
+        C oldContext = expectedContext;
+        if (oldContext == null) {
+            log.info("Old environment context in-memory is null.");
+            log.info("Attempting to load old environment context from disk before checking if there are modifications.");
+            boolean contextWasReadFromFile = readContextFromFile(log);
+            if (!contextWasReadFromFile) {
+                log.info("Old environment context was not read from disk: recording new context in-memory and checking changes in next poll.");
+                //unless another poll recorded its own in the meantime
+                compareAndSetContext(null, newContext);
+                return false;
+            }
+            oldContext = context;
         }
+
+        return checkIfModified(oldContext, newContext, log);
     }
-    
+
     /**
      * I attempt to read the previous context from the job config directory on the master
      * server filesystem, and assign it to the in-memory context
@@ -157,16 +148,28 @@ public abstract class AbstractIvyTriggerByFullContext<C extends XTriggerContext>
      */
     protected abstract boolean readContextFromFile(XTriggerLog log);
 
+    /**
+     * Gets the context recorded at the previous poll, without waiting for a poll in progress
+     *
+     * @return the current context, null if none was recorded or read from disk yet
+     */
+    protected C getCurrentContext() {
+        return context;
+    }
+
     protected void setNewContext(C context) {
-        
-         // make sure the lock is not null; when de-serialising
-        if(lock==null){
-            lock = new Object();
-        }
-        
-        synchronized (lock) {
-            this.context = context;
-        }
+        CONTEXT_UPDATER.set(this, context);
+    }
+
+    /**
+     * Records the new context only if the current context is still the expected one
+     *
+     * @param expectedContext the context the poll compared the new context with
+     * @param newContext      the new context
+     * @return false if the current context was replaced in the meantime
+     */
+    protected boolean compareAndSetContext(C expectedContext, C newContext) {
+        return CONTEXT_UPDATER.compareAndSet(this, expectedContext, newContext);
     }
 
     /**
@@ -175,15 +178,7 @@ public abstract class AbstractIvyTriggerByFullContext<C extends XTriggerContext>
      * @param oldContext the previous context
      */
     protected void resetOldContext(C oldContext) {
-        
-         // make sure the lock is not null; when de-serialising
-        if(lock==null){
-            lock = new Object();
-        }
-        
-        synchronized (lock) {
-            this.context = oldContext;
-        }
+        CONTEXT_UPDATER.set(this, oldContext);
     }
 
     /**
@@ -0,0 +1,83 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * I read the metadata of the resolved artifacts (origin in the cache, file dates, repository dates)
+ * on a bounded pool of threads shared by the polls of the node I am loaded on.
+ * <p/>
+ * The reads of a poll run with the Ivy instance of the poll as the Ivy context of the pool thread.
+ * Small graphs are read on the polling thread, the pool would only add a hand-off.
+ */
+public class IvyArtifactMetadataCollector {
+
+    static final int POOL_SIZE = Math.max(2, Math.min(16, Runtime.getRuntime().availableProcessors() * 2));
+
+    static final int PARALLEL_THRESHOLD = 16;
+
+    private static final IvyArtifactMetadataCollector INSTANCE = new IvyArtifactMetadataCollector();
+
+    private final ThreadPoolExecutor executor;
+
+    private IvyArtifactMetadataCollector() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "IvyTrigger artifact metadata reader " + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        //the pool is idle between the polls
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static IvyArtifactMetadataCollector get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the reads and waits for all of them
+     *
+     * @return the futures of the reads, in the order of the reads; a future holds the exception of a failed read
+     */
+    public <T> List<Future<T>> readAll(final Ivy ivy, List<Callable<T>> reads) throws InterruptedException {
+        List<Callable<T>> contextReads = new ArrayList<Callable<T>>(reads.size());
+        for (final Callable<T> read : reads) {
+            contextReads.add(new Callable<T>() {
+                public T call() throws Exception {
+                    IvyContext.pushNewContext().setIvy(ivy);
+                    try {
+                        return read.call();
+                    } finally {
+                        IvyContext.popContext();
+                    }
+                }
+            });
+        }
+
+        if (reads.size() < PARALLEL_THRESHOLD) {
+            List<Future<T>> futures = new ArrayList<Future<T>>(reads.size());
+            for (Callable<T> read : contextReads) {
+                FutureTask<T> future = new FutureTask<T>(read);
+                future.run();
+                futures.add(future);
+            }
+            return futures;
+        }
+
+        return executor.invokeAll(contextReads);
+    }
+}
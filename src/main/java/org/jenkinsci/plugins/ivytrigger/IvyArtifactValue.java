@@ -7,21 +7,30 @@ import java.io.Serializable;
  */
 public class IvyArtifactValue implements Serializable {
 
+    private static final long serialVersionUID = 3009499318886225661L;
+
     private String name;
 
     private String extension;
 
     private long lastModificationDate;
 
+    private String checksum;
+
     public IvyArtifactValue(String name, String extension, long lastModificationDate) {
+        this(name, extension, lastModificationDate, null);
+    }
+
+    public IvyArtifactValue(String name, String extension, long lastModificationDate, String checksum) {
         this.name = name;
         this.extension = extension;
         this.lastModificationDate = lastModificationDate;
+        this.checksum = checksum;
     }
 
     public String getFullName() {
         if (extension != null) {
-            return String.format("%s.%s", name, extension);
+            return name + "." + extension;
         }
         return getName();
     }
@@ -37,6 +46,14 @@ public class IvyArtifactValue implements Serializable {
     public long getLastModificationDate() {
         return lastModificationDate;
     }
+
+    /**
+     * @return the size and, when the repository gives no publication date, the SHA-1 of the artifact published in the repository;
+     *         null when the artifact was read from the Ivy cache
+     */
+    public String getChecksum() {
+        return checksum;
+    }
 }
 
 
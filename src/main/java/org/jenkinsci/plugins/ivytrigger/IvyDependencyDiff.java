@@ -0,0 +1,323 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * I compare two resolved dependency graphs and record the changes between them.
+ * <p/>
+ * Dependencies are keyed by their id (<i>organisation#module;requested revision</i>).
+ * A previous dependency is matched with the new dependency of the same id, or else with a new dependency
+ * of the same module name, so that a revision change of a fixed revision is detected.
+ * The module names are indexed once, so the comparison is linear in the number of dependencies.
+ * The artifacts of a dependency are matched by their name and extension, in place:
+ * a new artifact is first looked for at the position of the previous one, as the resolves list them in the same order.
+ * The artifact names are only formatted for the changes written to the log.
+ */
+public class IvyDependencyDiff {
+
+    /**
+     * The number of changes listed in the polling log outside of debug mode
+     */
+    static final int MAX_SUMMARY_CHANGES = 20;
+
+    private final List<String> addedDependencies = new ArrayList<String>();
+
+    private final List<String> removedDependencies = new ArrayList<String>();
+
+    private final List<RevisionChange> revisionChanges = new ArrayList<RevisionChange>();
+
+    private final List<ArtifactChange> artifactChanges = new ArrayList<ArtifactChange>();
+
+    private int changedDependencies;
+
+    private IvyDependencyDiff() {
+    }
+
+    /**
+     * Computes the changes from the previous to the new dependencies
+     */
+    public static IvyDependencyDiff compute(Map<String, IvyDependencyValue> previousDependencies,
+                                            Map<String, IvyDependencyValue> newDependencies) {
+
+        IvyDependencyDiff diff = new IvyDependencyDiff();
+
+        //Index the new dependencies by module name, ignoring the case as the previous dependencies lookup always did
+        Map<String, IvyDependencyValue> newDependenciesByName = new HashMap<String, IvyDependencyValue>(newDependencies.size() * 2);
+        for (Map.Entry<String, IvyDependencyValue> newDependency : newDependencies.entrySet()) {
+            String key = getDependencyName(newDependency.getKey()).toLowerCase(Locale.ENGLISH);
+            if (!newDependenciesByName.containsKey(key)) {
+                newDependenciesByName.put(key, newDependency.getValue());
+            }
+        }
+
+        //Check the previous dependencies against the new ones (left to right)
+        Map<String, String> previousDependencyNames = new HashMap<String, String>(previousDependencies.size() * 2);
+        for (Map.Entry<String, IvyDependencyValue> previousDependency : previousDependencies.entrySet()) {
+            String dependencyId = previousDependency.getKey();
+            String dependencyName = getDependencyName(dependencyId);
+            previousDependencyNames.put(dependencyName, dependencyId);
+
+            IvyDependencyValue newDependencyValue = newDependencies.get(dependencyId);
+            if (newDependencyValue == null) {
+                newDependencyValue = newDependenciesByName.get(dependencyName.toLowerCase(Locale.ENGLISH));
+            }
+            if (diff.compareDependency(dependencyId, dependencyName, previousDependency.getValue(), newDependencyValue)) {
+                diff.changedDependencies++;
+            }
+        }
+
+        //Check the dependencies not previously recorded (right to left)
+        for (String newDependencyId : newDependencies.keySet()) {
+            if (!previousDependencyNames.containsKey(getDependencyName(newDependencyId))) {
+                diff.addedDependencies.add(newDependencyId);
+                diff.changedDependencies++;
+            }
+        }
+
+        return diff;
+    }
+
+    private boolean compareDependency(String dependencyId,
+                                      String dependencyName,
+                                      IvyDependencyValue previousDependencyValue,
+                                      IvyDependencyValue newDependencyValue) {
+
+        //Check if the previous dependency exists anymore
+        if (newDependencyValue == null) {
+            removedDependencies.add(dependencyId);
+            return true;
+        }
+
+        //Check if the revision has changed
+        String previousRevision = previousDependencyValue.getRevision();
+        String newRevision = newDependencyValue.getRevision();
+        if (newRevision == null ? previousRevision != null : !newRevision.equals(previousRevision)) {
+            revisionChanges.add(new RevisionChange(dependencyId, dependencyName, previousRevision, newRevision));
+            return true;
+        }
+
+        //Check if there is at least one change to previous recorded artifacts
+        List<IvyArtifactValue> previousArtifacts = previousDependencyValue.getArtifacts();
+        List<IvyArtifactValue> newArtifacts = newDependencyValue.getArtifacts();
+        if (previousArtifacts == null || previousArtifacts.isEmpty()) {
+            return false;
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < previousArtifacts.size(); i++) {
+            IvyArtifactValue previousArtifact = previousArtifacts.get(i);
+            IvyArtifactValue newArtifact = findArtifact(newArtifacts, i, previousArtifact);
+            if (newArtifact == null || isArtifactChanged(previousArtifact, newArtifact)) {
+                artifactChanges.add(new ArtifactChange(dependencyId, previousArtifact, newArtifact));
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * @param position the position of the previous artifact, where the new one is looked for first
+     * @return the new artifact with the name and extension of the previous one, null if there is none
+     */
+    private static IvyArtifactValue findArtifact(List<IvyArtifactValue> newArtifacts, int position, IvyArtifactValue previousArtifact) {
+        if (newArtifacts == null) {
+            return null;
+        }
+        if (position < newArtifacts.size() && isSameArtifact(previousArtifact, newArtifacts.get(position))) {
+            return newArtifacts.get(position);
+        }
+        for (IvyArtifactValue newArtifact : newArtifacts) {
+            if (isSameArtifact(previousArtifact, newArtifact)) {
+                return newArtifact;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSameArtifact(IvyArtifactValue previousArtifact, IvyArtifactValue newArtifact) {
+        return equals(previousArtifact.getName(), newArtifact.getName())
+                && equals(previousArtifact.getExtension(), newArtifact.getExtension());
+    }
+
+    private static boolean equals(String value, String otherValue) {
+        return (value == null) ? otherValue == null : value.equals(otherValue);
+    }
+
+    /**
+     * The checksums are compared only when both polls read the artifacts from the repository metadata
+     */
+    private static boolean isArtifactChanged(IvyArtifactValue previousArtifact, IvyArtifactValue newArtifact) {
+        if (newArtifact.getLastModificationDate() != previousArtifact.getLastModificationDate()) {
+            return true;
+        }
+        String previousChecksum = previousArtifact.getChecksum();
+        String newChecksum = newArtifact.getChecksum();
+        return previousChecksum != null && newChecksum != null && !previousChecksum.equals(newChecksum);
+    }
+
+    /**
+     * @return the module name part (<i>organisation#module</i>) of a dependency id
+     */
+    static String getDependencyName(String dependencyId) {
+        int index = dependencyId.indexOf(';');
+        return (index < 0) ? dependencyId : dependencyId.substring(0, index);
+    }
+
+    private static String getDependencyRevision(String dependencyId) {
+        int index = dependencyId.indexOf(';');
+        return (index < 0) ? "" : dependencyId.substring(index + 1);
+    }
+
+    public boolean hasChanges() {
+        return changedDependencies > 0;
+    }
+
+    /**
+     * @return the number of previous dependencies that were removed or changed, plus the number of added dependencies
+     */
+    public int getChangedDependencyCount() {
+        return changedDependencies;
+    }
+
+    public List<String> getAddedDependencies() {
+        return Collections.unmodifiableList(addedDependencies);
+    }
+
+    public List<String> getRemovedDependencies() {
+        return Collections.unmodifiableList(removedDependencies);
+    }
+
+    public List<RevisionChange> getRevisionChanges() {
+        return Collections.unmodifiableList(revisionChanges);
+    }
+
+    public List<ArtifactChange> getArtifactChanges() {
+        return Collections.unmodifiableList(artifactChanges);
+    }
+
+    /**
+     * Writes the changes to the polling log: a count by kind of change, then the changes themselves,
+     * the first {@link #MAX_SUMMARY_CHANGES} ones only unless the log details are enabled
+     */
+    public void log(IvyTriggerPollLog log) {
+        if (!hasChanges()) {
+            log.summary("No changes in the resolved dependencies.");
+            return;
+        }
+        log.summary(String.format("%s dependencies changed: %s removed, %s with a new version, %s with changed artifacts, %s added.",
+                changedDependencies, removedDependencies.size(), revisionChanges.size(), artifactChanges.size(), addedDependencies.size()));
+
+        int remaining = log.isDetailEnabled() ? Integer.MAX_VALUE : MAX_SUMMARY_CHANGES;
+        for (String dependencyId : removedDependencies) {
+            if (remaining-- <= 0) {
+                break;
+            }
+            log.summary("....The previous dependency %s doesn't exist anymore.", dependencyId);
+        }
+        for (RevisionChange revisionChange : revisionChanges) {
+            if (remaining-- <= 0) {
+                break;
+            }
+            log.summary("....The dependency version has changed for " + revisionChange.getDependencyName() + " .");
+            log.summary("....The previous version recorded was %s.", revisionChange.getPreviousRevision());
+            log.summary("....The new computed version is %s.", revisionChange.getNewRevision());
+        }
+        for (ArtifactChange artifactChange : artifactChanges) {
+            if (remaining-- <= 0) {
+                break;
+            }
+            IvyArtifactValue previousArtifact = artifactChange.getPreviousArtifact();
+            IvyArtifactValue newArtifact = artifactChange.getNewArtifact();
+            if (newArtifact == null) {
+                log.summary("....The previous artifact %s of the dependency %s doesn't exist anymore.", previousArtifact.getFullName(), artifactChange.getDependencyId());
+            } else {
+                log.summary("....The artifact %s of the dependency %s has changed.", previousArtifact.getFullName(), artifactChange.getDependencyId());
+                log.summary("....The previous publication date recorded was %s.", new Date(previousArtifact.getLastModificationDate()));
+                log.summary("....The new computed publication date is %s.", new Date(newArtifact.getLastModificationDate()));
+                if (previousArtifact.getChecksum() != null && newArtifact.getChecksum() != null) {
+                    log.summary("....The previous checksum recorded was %s.", previousArtifact.getChecksum());
+                    log.summary("....The new computed checksum is %s.", newArtifact.getChecksum());
+                }
+            }
+        }
+        for (String dependencyId : addedDependencies) {
+            if (remaining-- <= 0) {
+                break;
+            }
+            log.summary("....The new dependency %s (%s) did not exist before.", getDependencyName(dependencyId), getDependencyRevision(dependencyId));
+        }
+        if (remaining < 0) {
+            log.summary("....The other changes are listed in debug mode.");
+        }
+    }
+
+    public static class RevisionChange {
+
+        private final String dependencyId;
+
+        private final String dependencyName;
+
+        private final String previousRevision;
+
+        private final String newRevision;
+
+        RevisionChange(String dependencyId, String dependencyName, String previousRevision, String newRevision) {
+            this.dependencyId = dependencyId;
+            this.dependencyName = dependencyName;
+            this.previousRevision = previousRevision;
+            this.newRevision = newRevision;
+        }
+
+        public String getDependencyId() {
+            return dependencyId;
+        }
+
+        public String getDependencyName() {
+            return dependencyName;
+        }
+
+        public String getPreviousRevision() {
+            return previousRevision;
+        }
+
+        public String getNewRevision() {
+            return newRevision;
+        }
+    }
+
+    public static class ArtifactChange {
+
+        private final String dependencyId;
+
+        private final IvyArtifactValue previousArtifact;
+
+        private final IvyArtifactValue newArtifact;
+
+        ArtifactChange(String dependencyId, IvyArtifactValue previousArtifact, IvyArtifactValue newArtifact) {
+            this.dependencyId = dependencyId;
+            this.previousArtifact = previousArtifact;
+            this.newArtifact = newArtifact;
+        }
+
+        public String getDependencyId() {
+            return dependencyId;
+        }
+
+        public IvyArtifactValue getPreviousArtifact() {
+            return previousArtifact;
+        }
+
+        /**
+         * @return the new artifact, null if the artifact doesn't exist anymore
+         */
+        public IvyArtifactValue getNewArtifact() {
+            return newArtifact;
+        }
+    }
+}
@@ -8,6 +8,8 @@ import java.util.List;
  */
 public class IvyDependencyValue implements Serializable {
 
+    private static final long serialVersionUID = -5576140661591214650L;
+
     private String revision;
 
     private List<IvyArtifactValue> artifacts;
@@ -3,35 +3,46 @@ package org.jenkinsci.plugins.ivytrigger;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Util;
-import hudson.console.AnnotatedLargeText;
 import hudson.model.Action;
 import hudson.model.AbstractProject;
+import hudson.model.Api;
+import hudson.model.Item;
 import hudson.model.Node;
+import hudson.util.StreamTaskListener;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
-import org.apache.commons.jelly.XMLOutput;
+import javax.servlet.http.HttpServletResponse;
+
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+
 import org.jenkinsci.lib.envinject.EnvInjectException;
 import org.jenkinsci.lib.envinject.service.EnvVarsResolver;
 import org.jenkinsci.lib.xtrigger.XTriggerDescriptor;
 import org.jenkinsci.lib.xtrigger.XTriggerException;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.jenkinsci.plugins.ivytrigger.util.BoundedOutputStream;
 import org.jenkinsci.plugins.ivytrigger.util.FilePathFactory;
 import org.jenkinsci.plugins.ivytrigger.util.PropertiesFileContentExtractor;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.interceptor.RequirePOST;
 
 import antlr.ANTLRException;
 
@@ -41,6 +52,23 @@ import antlr.ANTLRException;
  */
 public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContext> implements Serializable {
 
+    /**
+     * The number of previous poll logs kept next to the log of the last poll
+     */
+    static final int KEPT_POLL_LOGS = 5;
+
+    /**
+     * The number of polls whose timings are kept in memory
+     */
+    static final int KEPT_POLL_TIMINGS = 20;
+
+    /**
+     * The log of a poll keeps its first and its last bytes: the log of the node, up to 1 MB, and the lines of the master
+     */
+    static final int MAX_POLL_LOG_HEAD = IvyTriggerEvaluator.MAX_LOG_HEAD;
+
+    static final int MAX_POLL_LOG_TAIL = IvyTriggerEvaluator.MAX_LOG_TAIL + 256 * 1024;
+
     private String ivyPath;
 
     private String ivySettingsPath;
@@ -57,12 +85,38 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
 
     private boolean enableConcurrentBuild;
 
+    private boolean skipResolveIfUnchanged;
+
+    private boolean metadataOnly;
+
+    private boolean watchRepository;
+
+    private transient volatile IvyTriggerEvaluatorResult lastEvaluatorResult;
+
+    private transient volatile String persistedContextFingerprint;
+
     private transient FilePathFactory filePathFactory;
 
     private transient PropertiesFileContentExtractor propertiesFileContentExtractor;
 
+    /**
+     * The timings of the last poll started. The polls of a job can overlap (a queued poll started again, a poll on publish):
+     * the phases of an earlier poll still in progress are then recorded in the timings of the later one
+     */
+    private transient volatile IvyTriggerPollTimings pollTimings;
+
+    /**
+     * The timings of the last polls, the most recent first
+     */
+    private transient LinkedList<IvyTriggerPollTimings> recentPollTimings;
+
+    /**
+     * Set when the publish of a dependency was detected or notified: the next poll resolves without reusing the previous one
+     */
+    private transient volatile boolean resolveRequested;
+
     @DataBoundConstructor
-    public IvyTrigger(String cronTabSpec, String ivyPath, String ivySettingsPath, String propertiesFilePath, String propertiesContent, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, boolean contextSerialized, boolean debug) throws ANTLRException {
+    public IvyTrigger(String cronTabSpec, String ivyPath, String ivySettingsPath, String propertiesFilePath, String propertiesContent, LabelRestrictionClass labelRestriction, boolean enableConcurrentBuild, boolean contextSerialized, boolean debug, boolean skipResolveIfUnchanged, boolean metadataOnly, boolean watchRepository) throws ANTLRException {
         super(cronTabSpec, (labelRestriction == null) ? null : labelRestriction.getTriggerLabel(), enableConcurrentBuild);
         this.ivyPath = Util.fixEmpty(ivyPath);
         this.ivySettingsPath = Util.fixEmpty(ivySettingsPath);
@@ -72,6 +126,9 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
         this.debug = debug;
         this.labelRestriction = (labelRestriction == null) ? false : true;
         this.enableConcurrentBuild = enableConcurrentBuild;
+        this.skipResolveIfUnchanged = skipResolveIfUnchanged;
+        this.metadataOnly = metadataOnly;
+        this.watchRepository = watchRepository;
     }
 
     @SuppressWarnings("unused")
@@ -113,6 +170,26 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
         return enableConcurrentBuild;
     }
 
+    @SuppressWarnings("unused")
+    public boolean isSkipResolveIfUnchanged() {
+        return skipResolveIfUnchanged;
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isMetadataOnly() {
+        return metadataOnly;
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isWatchRepository() {
+        return watchRepository;
+    }
+
+    @Override
+    public IvyScriptTriggerDescriptor getDescriptor() {
+        return (IvyScriptTriggerDescriptor) super.getDescriptor();
+    }
+
     @Override
     public Collection<? extends Action> getProjectActions() {
         IvyTriggerAction action = new InternalIvyTriggerAction(this.getDescriptor().getDisplayName());
@@ -120,6 +197,7 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
     }
 
 
+    @ExportedBean
     public final class InternalIvyTriggerAction extends IvyTriggerAction {
 
         private transient String label;
@@ -153,17 +231,217 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
             return label;
         }
 
+        /**
+         * @param poll  the index of the poll, 0 or null for the last one
+         * @param start the position of the page, null for the end of the log
+         * @param end   the end of the page when there is no start, null for the end of the log
+         * @return the page, null if there is no log
+         */
+        @SuppressWarnings("unused")
+        public IvyTriggerLogPage getLogPage(String poll, String start, String end) throws IOException {
+            int pollIndex = 0;
+            if (poll != null) {
+                try {
+                    pollIndex = Math.max(0, Math.min(KEPT_POLL_LOGS, Integer.parseInt(poll)));
+                } catch (NumberFormatException nfe) {
+                    pollIndex = 0;
+                }
+            }
+            return IvyTriggerLogPage.getPage(getLogFile(pollIndex), this, pollIndex, start, end);
+        }
+
+        /**
+         * @return the timings of the last polls, the most recent first
+         */
+        @Exported
+        public List<IvyTriggerPollTimings> getPollTimings() {
+            return getRecentPollTimings();
+        }
+
+        /**
+         * Exposes the poll timings to the remote API, at ivyTriggerPollLog/api/json
+         */
         @SuppressWarnings("unused")
-        public String getLog() throws IOException {
-            return Util.loadFile(getLogFile());
+        public Api getApi() {
+            return new Api(this);
         }
 
+        /**
+         * @return the indexes of the previous polls with a log, the most recent first
+         */
         @SuppressWarnings("unused")
-        public void writeLogTo(XMLOutput out) throws IOException {
-            new AnnotatedLargeText<InternalIvyTriggerAction>(getLogFile(), Charset.defaultCharset(), true, this).writeHtmlTo(0, out.asWriter());
+        public List<Integer> getPreviousPolls() {
+            List<Integer> polls = new ArrayList<Integer>();
+            for (int i = 1; i <= KEPT_POLL_LOGS; i++) {
+                if (getLogFile(i).exists()) {
+                    polls.add(i);
+                }
+            }
+            return polls;
+        }
+    }
+
+    /**
+     * Rotates the poll logs: the log of the previous poll is kept as ivy-polling.log.1, and so on
+     */
+    private void rotateLogs() {
+        File logFile = getLogFile();
+        if (logFile.length() == 0) {
+            return;
         }
+        getLogFile(KEPT_POLL_LOGS).delete();
+        for (int i = KEPT_POLL_LOGS - 1; i >= 1; i--) {
+            File previousLogFile = getLogFile(i);
+            if (previousLogFile.exists()) {
+                previousLogFile.renameTo(getLogFile(i + 1));
+            }
+        }
+        logFile.renameTo(getLogFile(1));
+    }
+
+    private File getLogFile(int poll) {
+        File logFile = getLogFile();
+        return (poll == 0) ? logFile : new File(logFile.getParentFile(), logFile.getName() + "." + poll);
+    }
+
+
+    @Override
+    public void stop() {
+        super.stop();
+        IvyTriggerRepositoryWatcher.get().unwatch(this);
+        IvyTriggerModuleIndex.get().remove(this);
     }
 
+    /**
+     * Indexes the job by the modules of its new context, see {@link IvyTriggerModuleIndex}
+     */
+    @Override
+    protected void setNewContext(IvyTriggerContext context) {
+        super.setNewContext(context);
+        IvyTriggerModuleIndex.get().update(this, context);
+    }
+
+    @Override
+    protected boolean compareAndSetContext(IvyTriggerContext expectedContext, IvyTriggerContext newContext) {
+        if (!super.compareAndSetContext(expectedContext, newContext)) {
+            return false;
+        }
+        IvyTriggerModuleIndex.get().update(this, newContext);
+        return true;
+    }
+
+    @Override
+    protected void resetOldContext(IvyTriggerContext oldContext) {
+        super.resetOldContext(oldContext);
+        IvyTriggerModuleIndex.get().update(this, oldContext);
+    }
+
+    /**
+     * Delays the poll by the jitter of the job, see {@link IvyTriggerPollingScheduler}
+     */
+    @Override
+    public void run() {
+        IvyTriggerPollingScheduler.get().schedule(job == null ? null : job.getFullName(), new Runnable() {
+            public void run() {
+                pollNow();
+            }
+        });
+    }
+
+    /**
+     * Polls the job without the jitter: the poll is not started by the schedule
+     */
+    void pollNow() {
+        rotateLogs();
+        super.run();
+    }
+
+    /**
+     * Polls the job without waiting for its schedule, on a notified publish of a module it depends on
+     *
+     * @return false if the current user can't build the job
+     */
+    boolean pollOnPublish() {
+        if (job == null || !job.hasPermission(Item.BUILD)) {
+            return false;
+        }
+        requestResolve();
+        return true;
+    }
+
+    /**
+     * Polls the job without waiting for its schedule, a module it depends on was published.
+     * The poll resolves the dependencies even if the resolve could be skipped.
+     */
+    void requestResolve() {
+        resolveRequested = true;
+        pollNow();
+    }
+
+    @Override
+    protected boolean checkIfModified(Node pollingNode, XTriggerLog log) throws XTriggerException {
+        //a poll over the limits doesn't wait on the polling thread, it is started again when a slot is free
+        IvyTriggerPollingScheduler scheduler = IvyTriggerPollingScheduler.get();
+        IvyTriggerPollingScheduler.Permit permit = scheduler.tryAcquire(pollingNode == null ? null : pollingNode.getNodeName(), this, new Runnable() {
+            public void run() {
+                pollNow();
+            }
+        });
+        if (permit == null) {
+            log.info(scheduler.getQueuedMessage());
+            return false;
+        }
+
+        IvyTriggerPollTimings timings = new IvyTriggerPollTimings();
+        timings.record(IvyTriggerPollTimings.PHASE_POLLING_SLOT, permit.getRequestNanos());
+        pollTimings = timings;
+        //the poll writes to a bounded buffer, appended to the log file when the poll completes
+        BoundedOutputStream logBuffer = new BoundedOutputStream(MAX_POLL_LOG_HEAD, MAX_POLL_LOG_TAIL);
+        StreamTaskListener bufferListener = new StreamTaskListener(logBuffer, Charset.defaultCharset());
+        try {
+            return super.checkIfModified(pollingNode, new XTriggerLog(bufferListener));
+        } finally {
+            permit.release();
+            if (pollTimings == timings) {
+                pollTimings = null;
+            }
+            addPollTimings(timings);
+            bufferListener.getLogger().flush();
+            try {
+                log.getListener().getLogger().print(logBuffer.toString(Charset.defaultCharset().name()));
+            } catch (UnsupportedEncodingException uee) {
+                log.error("Can't write the log of the poll: " + uee.getMessage());
+            }
+        }
+    }
+
+    private synchronized void addPollTimings(IvyTriggerPollTimings timings) {
+        timings.finish();
+        if (recentPollTimings == null) {
+            recentPollTimings = new LinkedList<IvyTriggerPollTimings>();
+        }
+        recentPollTimings.addFirst(timings);
+        while (recentPollTimings.size() > KEPT_POLL_TIMINGS) {
+            recentPollTimings.removeLast();
+        }
+    }
+
+    private synchronized List<IvyTriggerPollTimings> getRecentPollTimings() {
+        if (recentPollTimings == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<IvyTriggerPollTimings>(recentPollTimings);
+    }
+
+    /**
+     * Records the time elapsed in a phase of the poll in progress
+     */
+    private void recordPhase(String phase, long startNanos) {
+        IvyTriggerPollTimings timings = pollTimings;
+        if (timings != null) {
+            timings.record(phase, startNanos);
+        }
+    }
 
     @Override
     public boolean isContextOnStartupFetched() {
@@ -177,6 +455,7 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
         log.info(String.format("Given job Ivy settings file value: %s", ivySettingsPath));
 
         AbstractProject project = (AbstractProject) job;
+        long envVarsStart = System.nanoTime();
         EnvVarsResolver varsRetriever = new EnvVarsResolver();
         Map<String, String> envVars;
         try {
@@ -184,42 +463,87 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
         } catch (EnvInjectException e) {
             throw new XTriggerException(e);
         }
+        recordPhase(IvyTriggerPollTimings.PHASE_ENV_VARS, envVarsStart);
 
-        //Get ivy file and get ivySettings file
-        FilePathFactory filePathFactory = new FilePathFactory();
-        FilePath ivyFilePath = filePathFactory.getDescriptorFilePath(ivyPath, project, pollingNode, log, envVars);
-        FilePath ivySettingsFilePath = filePathFactory.getDescriptorFilePath(ivySettingsPath, project, pollingNode, log, envVars);
-
-        if (ivyFilePath == null) {
-            log.error("You have to provide a valid Ivy file.");
-            return new IvyTriggerContext(null);
-        }
-        if (ivySettingsFilePath == null) {
-            log.error("You have to provide a valid IvySettings file.");
+        if (pollingNode == null || pollingNode.getRootPath() == null) {
+            log.error("The polling node is offline.");
             return new IvyTriggerContext(null);
         }
 
-        log.info(String.format("Resolved job Ivy file value: %s", ivyFilePath.getRemote()));
-        log.info(String.format("Resolved job Ivy settings file value: %s", ivySettingsFilePath.getRemote()));
-
-        PropertiesFileContentExtractor propertiesFileContentExtractor = new PropertiesFileContentExtractor(new FilePathFactory());
-        String propertiesFileContent = propertiesFileContentExtractor.extractPropertiesFileContents(propertiesFilePath, project, pollingNode, log, envVars);
+        //The ivy file, the ivySettings file and the properties files are looked up by the polling node
+        long candidatesStart = System.nanoTime();
+        FilePathFactory filePathFactory = new FilePathFactory();
+        List<String> ivyFileCandidates = filePathFactory.getDescriptorFileCandidates(ivyPath, project, pollingNode, envVars);
+        List<String> ivySettingsFileCandidates = filePathFactory.getDescriptorFileCandidates(ivySettingsPath, project, pollingNode, envVars);
+
+        log.info("Given job  properties file path: " + propertiesFilePath);
+        List<List<String>> propertiesFileCandidates = new ArrayList<List<String>>();
+        if (propertiesFilePath != null) {
+            PropertiesFileContentExtractor propertiesFileContentExtractor = new PropertiesFileContentExtractor();
+            for (String path : propertiesFileContentExtractor.splitFilePaths(propertiesFilePath)) {
+                propertiesFileCandidates.add(filePathFactory.getDescriptorFileCandidates(path, project, pollingNode, envVars));
+            }
+        }
         String propertiesContentResolved = Util.replaceMacro(propertiesContent, envVars);
+        recordPhase(IvyTriggerPollTimings.PHASE_FILE_CANDIDATES, candidatesStart);
+
+        //the resolve can only be skipped if there is a context to reuse
+        IvyTriggerContext currentContext = getCurrentContext();
+        IvyTriggerEvaluatorResult previousResult = (currentContext == null) ? null : lastEvaluatorResult;
+        boolean resolveRequestedForPoll = resolveRequested;
+        if (resolveRequestedForPoll) {
+            resolveRequested = false;
+            log.info("A dependency was published: resolving the dependencies.");
+        }
 
-        Map<String, IvyDependencyValue> dependencies;
+        long nodeCallStart = System.nanoTime();
+        IvyTriggerEvaluatorResult result;
         try {
-            FilePath temporaryPropertiesFilePath = pollingNode.getRootPath().createTextTempFile("props", "props", propertiesFileContent);
-            log.info("Temporary properties file path is " + temporaryPropertiesFilePath.getName());
-            dependencies = getDependenciesMapForNode(pollingNode, log, ivyFilePath, ivySettingsFilePath, temporaryPropertiesFilePath, propertiesContentResolved, envVars);
-            temporaryPropertiesFilePath.delete();
+            result = getDependenciesMapForNode(pollingNode, log, ivyFileCandidates, ivySettingsFileCandidates, propertiesFileCandidates, propertiesContentResolved, envVars, previousResult, resolveRequestedForPoll);
         } catch (IOException ioe) {
             throw new XTriggerException(ioe);
         } catch (InterruptedException ie) {
             throw new XTriggerException(ie);
         }
-        return new IvyTriggerContext(dependencies);
+        recordPhase(IvyTriggerPollTimings.PHASE_NODE_CALL, nodeCallStart);
+
+        if (result == null) {
+            lastEvaluatorResult = null;
+            return new IvyTriggerContext(null);
+        }
+        log.getListener().getLogger().print(result.getLog());
+        IvyTriggerPollTimings timings = pollTimings;
+        if (timings != null) {
+            timings.addAll(result.getTimings());
+            timings.setDependencyCounts(result.isUpToDate() && currentContext != null ? currentContext.getDependencies() : result.getDependencies());
+        }
+        lastEvaluatorResult = result;
+        if (watchRepository && result.getRepositoryDirectories() != null) {
+            watchRepositoryDirectories(result.getRepositoryDirectories(), log);
+        }
+        if (result.getDependencies() == null && !result.isUpToDate()) {
+            return new IvyTriggerContext(null);
+        }
+        if (result.isUpToDate() && currentContext != null) {
+            log.info("Reusing the dependencies recorded at the previous poll.");
+            return currentContext;
+        }
+        return new IvyTriggerContext(result.getDependencies());
     }
     
+    private void watchRepositoryDirectories(List<String> repositoryDirectories, XTriggerLog log) {
+        if (repositoryDirectories.isEmpty()) {
+            log.info("No file system repository resolves the dependencies: the repository can't be watched.");
+        }
+        int visibleCount = IvyTriggerRepositoryWatcher.get().watch(this, repositoryDirectories);
+        if (visibleCount < repositoryDirectories.size()) {
+            log.info(String.format("%s of the %s repository directories of the dependencies are not visible from the master and can't be watched.",
+                    repositoryDirectories.size() - visibleCount, repositoryDirectories.size()));
+        } else if (!repositoryDirectories.isEmpty()) {
+            log.info(String.format("Watching %s repository directories for new publications.", visibleCount));
+        }
+    }
+
     @Override
     /**
      * I attempt to read the previous context from the job config directory on the master
@@ -230,28 +554,38 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
     protected boolean readContextFromFile(XTriggerLog log) {
         
         if (isContextSerialized()) {
+            IvyTriggerContext expectedContext = getCurrentContext();
+            long readStart = System.nanoTime();
             try {
-                File contextFile = new File (job.getRootDir(), "IvyTriggerContext.ser");
-                log.info("The new serialised context File object points at: " + contextFile.getAbsolutePath());
-                FileInputStream fileInputStream = new FileInputStream(contextFile);
-                log.info("Successfully created FileInputStream to context file");
-                ObjectInputStream objectInputStream = new ObjectInputStream(fileInputStream);
-                log.info("Successfully created ObjectInputStream to FileInputStream for context file");
-                IvyTriggerContext serializedContext = (IvyTriggerContext) objectInputStream.readObject();
-                log.info("Successfully read serializedContext from  ObjectInputStream");
-                this.resetOldContext(serializedContext);
-                log.info("Successfully assigned serializedContext to this.context");
-                objectInputStream.close();
-                log.info("Successfully closed ObjectInputStream to FileInputStream for context file");
+                File contextFile = getContextFile();
+                log.info("The serialised context File object points at: " + contextFile.getAbsolutePath());
+                IvyTriggerContext serializedContext = getContextWriter().getPendingContext(contextFile);
+                if (serializedContext != null) {
+                    log.info("Using the context waiting to be written to the context file");
+                } else {
+                    IvyTriggerContextSerializer serializer = new IvyTriggerContextSerializer();
+                    boolean legacyFormat = serializer.isLegacyFormat(contextFile);
+                    serializedContext = serializer.read(contextFile);
+                    log.info("Successfully read the serialised context");
+                    if (legacyFormat) {
+                        serializer.write(serializedContext, contextFile);
+                        log.info("Successfully migrated the serialised context file to the current format");
+                    }
+                }
+                persistedContextFingerprint = serializedContext.getFingerprint();
+                //a poll may have recorded a newer context while the file was read
+                if (compareAndSetContext(expectedContext, serializedContext)) {
+                    log.info("Successfully assigned serializedContext to this.context");
+                } else {
+                    log.info("The dependencies were recorded by another poll in the meantime. Using them instead of the serialised context");
+                }
                 return true;
             }
             catch (IOException ioException) {
                 log.error("IOExeption while deserializing the previous IvyTriggerContext object: " + ioException.getMessage());
                 return false;
-            }
-            catch (ClassNotFoundException classNotFoundException) {
-                log.error("ClassNotFoundException while deserializing the previous IvyTriggerContext object: " + classNotFoundException.getMessage());
-                return false;
+            } finally {
+                recordPhase(IvyTriggerPollTimings.PHASE_PERSISTENCE, readStart);
             }
         } else {
             log.info("The current job (" + job.getDisplayName() + ") does not persist its dependency tree to disk");
@@ -260,21 +594,44 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
         
     }
 
-    private Map<String, IvyDependencyValue> getDependenciesMapForNode(Node launcherNode,
-                                                                      XTriggerLog log,
-                                                                      FilePath ivyFilePath,
-                                                                      FilePath ivySettingsFilePath,
-                                                                      FilePath propertiesFilePath,
-                                                                      String propertiesContent,
-                                                                      Map<String, String> envVars) throws IOException, InterruptedException, XTriggerException {
-        Map<String, IvyDependencyValue> dependenciesMap = null;
+    /**
+     * If contextSerialized config is set, I queue the new context to be written to the job config directory,
+     * unless it has the same fingerprint as the context last written or read
+     */
+    private void persistContext(IvyTriggerContext newIvyTriggerContext, XTriggerLog log) {
+        if (!isContextSerialized()) {
+            return;
+        }
+
+        String fingerprint = newIvyTriggerContext.getFingerprint();
+        if (fingerprint.equals(persistedContextFingerprint)) {
+            log.info("The resolved dependencies are the same as the saved ones: the context file is kept.");
+            return;
+        }
+
+        File contextFile = getContextFile();
+        getContextWriter().submit(newIvyTriggerContext, contextFile);
+        persistedContextFingerprint = fingerprint;
+        log.info("The new IvyTriggerContext will be saved to " + contextFile.getAbsolutePath());
+    }
+
+    private IvyTriggerEvaluatorResult getDependenciesMapForNode(Node launcherNode,
+                                                                XTriggerLog log,
+                                                                List<String> ivyFileCandidates,
+                                                                List<String> ivySettingsFileCandidates,
+                                                                List<List<String>> propertiesFileCandidates,
+                                                                String propertiesContent,
+                                                                Map<String, String> envVars,
+                                                                IvyTriggerEvaluatorResult previousResult,
+                                                                boolean resolveRequested) throws IOException, InterruptedException, XTriggerException {
+        IvyTriggerEvaluatorResult evaluatorResult = null;
         if (launcherNode != null) {
             FilePath launcherFilePath = launcherNode.getRootPath();
             if (launcherFilePath != null) {
-                dependenciesMap = launcherFilePath.act(new IvyTriggerEvaluator(job.getName(), ivyFilePath, ivySettingsFilePath, propertiesFilePath, propertiesContent, log, debug, envVars));
+                evaluatorResult = launcherFilePath.act(new IvyTriggerEvaluator(job.getName(), ivyFileCandidates, ivySettingsFileCandidates, propertiesFileCandidates, propertiesContent, debug, envVars, skipResolveIfUnchanged, metadataOnly, watchRepository, previousResult, resolveRequested, getDescriptor().getCacheSettings()));
             }
         }
-        return dependenciesMap;
+        return evaluatorResult;
     }
 
     @Override
@@ -293,35 +650,10 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
                                       XTriggerLog log)
             throws XTriggerException {
         
-        // if contextSerialized config is set, serialize the new context information to disk in the job's workspace
-        if (isContextSerialized()) {
-            log.info("Save resolved dependencies to disk is set to true (contextSerialized=true)");
-            log.info("Attempting to serialize new IvyTriggerContext to job config directory");
-            try {
-                File contextFile = new File (job.getRootDir(), "IvyTriggerContext.ser");
-                log.info("The new serialised context File object points at: " + contextFile.getAbsolutePath());
-                contextFile.delete();
-                log.info("Successfully deleted the serialised context file");
-                FileOutputStream fileOutputStream = new FileOutputStream(contextFile);
-                log.info("Successfully created FileOutputStream to context file");
-                ObjectOutputStream out = new ObjectOutputStream(fileOutputStream);
-                log.info("Successfully created ObjectOutputStream to FileOutputStream for context file");
-                out.writeObject(newIvyTriggerContext);
-                log.info("Successfully wrote newIvyTriggerContext to  ObjectOutputStream");
-                out.close();
-                log.info("Successfully closed ObjectOutputStream to FileOutputStream for context file");
-            
-                } catch (IOException e) {
-                    log.error("IOException while serializing the new IvyTriggerContext object: " + e.getMessage());
-                }
-            }
-
-
         Map<String, IvyDependencyValue> previousDependencies = previousIvyTriggerContext.getDependencies();
 
         if (previousDependencies == null) {
             log.error("Can't compute files to check if there are modifications.");
-            resetOldContext(previousIvyTriggerContext);
             return false;
         }
 
@@ -330,168 +662,58 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
         //Check pre-requirements
         if (newComputedDependencies == null) {
             log.error("Can't record the resolved dependencies graph.");
-            resetOldContext(previousIvyTriggerContext);
             return false;
         }
 
         if (newComputedDependencies.size() == 0) {
             log.error("Can't record any dependencies. Check your settings.");
-            resetOldContext(previousIvyTriggerContext);
             return false;
         }
 
-        //Display all resolved dependencies
-        for (Map.Entry<String, IvyDependencyValue> dependency : newComputedDependencies.entrySet()) {
-            log.info(String.format("Resolved dependency %s ...", dependency.getKey()));
-        }
-
-        // set the new context
-        setNewContext(newIvyTriggerContext);
-
-        if (previousDependencies.size() != newComputedDependencies.size()) {
-            log.info(String.format("\nThe number of resolved dependencies has changed. Were "+previousDependencies.size()+" Are "+newComputedDependencies.size()));
-        }
-
-        //Check and report if there are changes left to right
-        int changesFound=0;
-        log.info("\nChecking comparison to previous recorded dependencies.");
-        for (Map.Entry<String, IvyDependencyValue> dependency : previousDependencies.entrySet()) {
-            if (isDependencyChanged(log, dependency, newComputedDependencies)) {
-                changesFound++;
+        //Display all resolved dependencies, in debug mode only
+        IvyTriggerPollLog pollLog = new IvyTriggerPollLog(log, debug);
+        pollLog.summary("Resolved %s dependencies.", newComputedDependencies.size());
+        if (pollLog.isDetailEnabled()) {
+            for (String dependencyId : newComputedDependencies.keySet()) {
+                pollLog.detail("Resolved dependency %s ...", dependencyId);
             }
         }
-        
-        //Check and report if there are new dependencies not previously recorded (right to left)
-        for (Map.Entry<String, IvyDependencyValue> newDependency : newComputedDependencies.entrySet()) {
-			String[] newdependencyName = newDependency.getKey().split(";");
-            boolean found=false;
-			for (Map.Entry<String, IvyDependencyValue> previousDependency : previousDependencies.entrySet()) {
-    			String previousdependencyName = previousDependency.getKey().split(";")[0];   
-    			if(previousdependencyName.equals(newdependencyName[0])){
-    				found=true;
-    				break;
-    			}
-            }
-			if(!found){
-                changesFound++;
-	            log.info(String.format("....The new dependency %s (%s) did not exist before.", newdependencyName[0],newdependencyName[1]));
-			}       	
-        }        
-        
-
-        return (changesFound>0);
-    }
-
-    private boolean isDependencyChanged(XTriggerLog log,
-                                        Map.Entry<String, IvyDependencyValue> previousDependency,
-                                        Map<String, IvyDependencyValue> newComputedDependencies) {
-
-        String dependencyId = previousDependency.getKey();
-        String dependencyName = dependencyId.split(";")[0];
-        
-        log.info(String.format("Checking previous recording dependency %s", dependencyId));
-
-        IvyDependencyValue previousDependencyValue = previousDependency.getValue();
-        IvyDependencyValue newDependencyValue = newComputedDependencies.get(dependencyId);
-        
-		// if we find nothing try to search just the name ignoring the revision.
-		if (newDependencyValue == null) {
-	        //log.info(String.format("Failed to find the new dependency for %s. Will try using just the name.",dependencyName));
-			// try to detect changes in the revision number even if a fixed
-			// revision is provided
-			for (Entry<String, IvyDependencyValue> newDepEntry : newComputedDependencies.entrySet()) {
-				String newdependencyName = newDepEntry.getKey().split(";")[0];
-		        //log.info(String.format(".....Comparing dependency %s with name %s with the old dependency name %s ",newDepEntry.getKey(),newdependencyName,dependencyName));
-				if (newdependencyName.equalsIgnoreCase(dependencyName)) {
-					newDependencyValue = newDepEntry.getValue();
-			        //log.info(".....Match found! New Dependency Value: "+newDependencyValue);
-					break;
-				}
-			}
-		}
-            
-        //Check if the previous dependency exists anymore
-        if (newDependencyValue == null) {
-            log.info(String.format("....The previous dependency %s doesn't exist anymore.", dependencyId));
-            return true;
-        }
-
-        //Check if the revision has changed
-        String previousRevision = previousDependencyValue.getRevision();
-        String newRevision = newDependencyValue.getRevision();
-        log.info(String.format("The previous version recorded was %s.", previousRevision));
-        log.info(String.format("The new computed version is %s.", newRevision));
-        if (!newRevision.equals(previousRevision)) {
-            log.info("....The dependency version has changed for "+dependencyName+" .");
-            log.info(String.format("....The previous version recorded was %s.", previousRevision));
-            log.info(String.format("....The new computed version is %s.", newRevision));
-            return true;
-        }
-
-        //Check if artifacts list has changed
-        List<IvyArtifactValue> previousArtifactValueList = previousDependencyValue.getArtifacts();
-        List<IvyArtifactValue> newArtifactValueList = newDependencyValue.getArtifacts();
 
-        //Display all resolved artifacts
-        for (IvyArtifactValue artifactValue : newArtifactValueList) {
-            log.info(String.format("..Dependency resolved artifact: %s", artifactValue.getFullName()));
+        // set the new context, unless another poll recorded its own since this poll started
+        if (!compareAndSetContext(previousIvyTriggerContext, newIvyTriggerContext)) {
+            log.info("The dependencies were recorded by another poll in the meantime. Nothing to compare.");
+            return false;
         }
+        long persistenceStart = System.nanoTime();
+        persistContext(newIvyTriggerContext, log);
+        recordPhase(IvyTriggerPollTimings.PHASE_PERSISTENCE, persistenceStart);
 
-        if (previousArtifactValueList.size() != newArtifactValueList.size()) {
-            log.info("....The number of artifacts of the dependency has changed.");
+        if (previousDependencies.size() != newComputedDependencies.size()) {
+            pollLog.summary("\nThe number of resolved dependencies has changed. Were %s Are %s", previousDependencies.size(), newComputedDependencies.size());
         }
 
-        //Check if there is at least one change to previous recording artifacts
-        log.info("...Checking comparison to previous recorded artifacts.");
-        int artifactsChanged=0;
-        for (IvyArtifactValue ivyArtifactValue : previousArtifactValueList) {
-            if (isArtifactsChanged(log, ivyArtifactValue, newArtifactValueList)) {
-            	artifactsChanged++;
-            }
-        }
+        //Check and report the changes in both directions
+        pollLog.summary("\nChecking comparison to previous recorded dependencies.");
+        long diffStart = System.nanoTime();
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newComputedDependencies);
+        diff.log(pollLog);
+        recordPhase(IvyTriggerPollTimings.PHASE_DIFF, diffStart);
 
-        return (artifactsChanged>0);
+        return diff.hasChanges();
     }
 
-    private boolean isArtifactsChanged(XTriggerLog log, IvyArtifactValue previousIvyArtifactValue, List<IvyArtifactValue> newArtifactValueList) {
-
-        log.info(String.format("....Checking previous recording artifact %s", previousIvyArtifactValue.getFullName()));
-
-        //Get the new artifact with same coordinates
-        IvyArtifactValue newIvyArtifactValue = null;
-        boolean stop = false;
-        int i = 0;
-        while (!stop && i < newArtifactValueList.size()) {
-            IvyArtifactValue ivyArtifactValue = newArtifactValueList.get(i);
-            if (ivyArtifactValue.getFullName().equals(previousIvyArtifactValue.getFullName())) {
-                newIvyArtifactValue = ivyArtifactValue;
-                stop = true;
-            }
-            i++;
-        }
-
-        //--Check if there are changes
-
-        //Check if the artifact still exist
-        if (newIvyArtifactValue == null) {
-            log.info(String.format("....The previous artifact %s doesn't exist anymore.", previousIvyArtifactValue.getFullName()));
-            return true;
-        }
-
-        //Check the publication date
-        long previousPublicationDate = previousIvyArtifactValue.getLastModificationDate();
-        long newPublicationDate = newIvyArtifactValue.getLastModificationDate();
-        if (previousPublicationDate != newPublicationDate) {
-            log.info("....The artifact version of the dependency has changed.");
-            log.info(String.format("....The previous publication date recorded was %s.", new Date(previousPublicationDate)));
-            log.info(String.format("....The new computed publication date is %s.", new Date(newPublicationDate)));
-            return true;
-        }
-
-        log.info(String.format("....No changes for the %s artifact", newIvyArtifactValue.getFullName()));
-        return false;
+    /**
+     * Gets the file the dependency context is persisted to
+     *
+     * @return the context file in the job directory
+     */
+    protected File getContextFile() {
+        return new File(job.getRootDir(), "IvyTriggerContext.ser");
     }
 
+    IvyTriggerContextWriter getContextWriter() {
+        return IvyTriggerContextWriter.get();
+    }
 
     /**
      * Gets the triggering log file
@@ -516,6 +738,97 @@ public class IvyTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContex
     @SuppressWarnings("unused")
     public static class IvyScriptTriggerDescriptor extends XTriggerDescriptor {
 
+        private int maxConcurrentPolls;
+
+        private int maxConcurrentPollsPerNode;
+
+        private int maxPollingJitter;
+
+        private boolean sharedCache;
+
+        private long cacheMaxSize;
+
+        private int cacheMaxAge;
+
+        public IvyScriptTriggerDescriptor() {
+            load();
+            applyPollingLimits();
+        }
+
+        public int getMaxConcurrentPolls() {
+            return maxConcurrentPolls;
+        }
+
+        public int getMaxConcurrentPollsPerNode() {
+            return maxConcurrentPollsPerNode;
+        }
+
+        public int getMaxPollingJitter() {
+            return maxPollingJitter;
+        }
+
+        public boolean isSharedCache() {
+            return sharedCache;
+        }
+
+        public long getCacheMaxSize() {
+            return cacheMaxSize;
+        }
+
+        public int getCacheMaxAge() {
+            return cacheMaxAge;
+        }
+
+        public IvyTriggerCacheSettings getCacheSettings() {
+            return new IvyTriggerCacheSettings(sharedCache, cacheMaxSize, cacheMaxAge);
+        }
+
+        @Override
+        public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+            maxConcurrentPolls = json.optInt("maxConcurrentPolls", 0);
+            maxConcurrentPollsPerNode = json.optInt("maxConcurrentPollsPerNode", 0);
+            maxPollingJitter = json.optInt("maxPollingJitter", 0);
+            sharedCache = json.optBoolean("sharedCache");
+            cacheMaxSize = Math.max(0, json.optLong("cacheMaxSize", 0));
+            cacheMaxAge = Math.max(0, json.optInt("cacheMaxAge", 0));
+            applyPollingLimits();
+            save();
+            return true;
+        }
+
+        /**
+         * Polls the jobs depending on the published modules, without waiting for their schedule.
+         * The modules are given by the <i>module</i> parameters, see {@link IvyTriggerModuleIndex#parseModuleId(String)};
+         * only the jobs the user can build are polled.
+         */
+        @RequirePOST
+        public void doNotifyPublish(StaplerRequest req, StaplerResponse rsp) throws IOException {
+            Jenkins.getInstance().checkPermission(Jenkins.READ);
+            String[] modules = req.getParameterValues("module");
+            if (modules == null || modules.length == 0) {
+                rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, "No module parameter given.");
+                return;
+            }
+
+            List<String> polledJobs = new ArrayList<String>();
+            for (IvyTrigger trigger : IvyTriggerModuleIndex.get().getTriggers(Arrays.asList(modules))) {
+                if (trigger.pollOnPublish()) {
+                    polledJobs.add(trigger.job.getFullName());
+                }
+            }
+
+            rsp.setContentType("text/plain;charset=UTF-8");
+            PrintWriter writer = rsp.getWriter();
+            writer.println(String.format("Scheduled the polling of %d job(s).", polledJobs.size()));
+            for (String polledJob : polledJobs) {
+                writer.println(polledJob);
+            }
+        }
+
+        private void applyPollingLimits() {
+            IvyTriggerPollingScheduler.get().configure(maxConcurrentPolls, maxConcurrentPollsPerNode, maxPollingJitter);
+        }
+
         @Override
         public String getHelpFile() {
             return "/plugin/ivytrigger/help.html";
@@ -0,0 +1,503 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * I evict the least recently used module revisions from the trigger caches of the node I am loaded on.
+ * <p/>
+ * Each poll records the module revisions it resolved with the cache files they own.
+ * Files found in a cache without being recorded by a poll (resolution reports, caches filled by the previous versions)
+ * are tracked on their own, from the time they are first seen or last modified.
+ * <p/>
+ * A background thread runs every {@link #MAINTENANCE_PERIOD} milliseconds; for each cache,
+ * it walks up to {@link #MAX_SCANNED_FILES_PER_RUN} files, from where the previous run stopped,
+ * then evicts up to {@link #MAX_EVICTIONS_PER_RUN} entries older than the age limit or, oldest first,
+ * while the cache is bigger than the size limit.
+ * The walk holds no lock. The usage lock is only taken to delete the chosen files, and without waiting:
+ * the deletion is skipped while a poll uses the cache, and a poll waits at most for the deletion of one run.
+ * The access times are kept in {@link #ACCESS_INDEX_FILE} at the root of each cache.
+ */
+public class IvyTriggerCacheMaintenance {
+
+    private static final Logger LOGGER = Logger.getLogger(IvyTriggerCacheMaintenance.class.getName());
+
+    static final long MAINTENANCE_PERIOD = TimeUnit.MINUTES.toMillis(10);
+
+    static final int MAX_EVICTIONS_PER_RUN = 500;
+
+    static final int MAX_SCANNED_FILES_PER_RUN = 5000;
+
+    static final String ACCESS_INDEX_FILE = ".ivytrigger-access.properties";
+
+    private static final String FILE_SEPARATOR = "|";
+
+    private static final IvyTriggerCacheMaintenance INSTANCE = new IvyTriggerCacheMaintenance();
+
+    private final ConcurrentMap<File, CacheIndex> caches = new ConcurrentHashMap<File, CacheIndex>();
+
+    private ScheduledExecutorService executor;
+
+    public static IvyTriggerCacheMaintenance get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the lock a poll holds while it resolves with the cache; several polls can hold it at the same time
+     */
+    public Lock getUsageLock(File cacheDir) {
+        return getCacheIndex(cacheDir).getUsageLock();
+    }
+
+    /**
+     * Records that a poll used a module revision of the cache, and applies the limits given by the poll to the cache
+     *
+     * @param revisionKey the module revision id
+     * @param files       the cache files of the module revision
+     */
+    public void recordAccess(File cacheDir, IvyTriggerCacheSettings cacheSettings, String revisionKey, List<File> files) {
+        CacheIndex cacheIndex = getCacheIndex(cacheDir);
+        cacheIndex.setLimits(cacheSettings);
+        cacheIndex.recordAccess(revisionKey, files, System.currentTimeMillis());
+        startMaintenance();
+    }
+
+    private CacheIndex getCacheIndex(File cacheDir) {
+        CacheIndex cacheIndex = caches.get(cacheDir);
+        if (cacheIndex == null) {
+            CacheIndex newCacheIndex = new CacheIndex(cacheDir);
+            cacheIndex = caches.putIfAbsent(cacheDir, newCacheIndex);
+            if (cacheIndex == null) {
+                cacheIndex = newCacheIndex;
+            }
+        }
+        return cacheIndex;
+    }
+
+    private synchronized void startMaintenance() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "IvyTrigger cache maintenance");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                for (CacheIndex cacheIndex : caches.values()) {
+                    try {
+                        cacheIndex.maintain(System.currentTimeMillis());
+                    } catch (RuntimeException re) {
+                        LOGGER.log(Level.WARNING, "Can't maintain the IvyTrigger cache " + cacheIndex.cacheDir, re);
+                    }
+                }
+            }
+        }, MAINTENANCE_PERIOD, MAINTENANCE_PERIOD, TimeUnit.MILLISECONDS);
+    }
+
+    static class CacheIndex {
+
+        private final File cacheDir;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+        private long maxSizeBytes;
+
+        private long maxAgeMillis;
+
+        private boolean loaded;
+
+        /**
+         * The sizes and dates of the files seen by the walk of the cache
+         */
+        private final Map<String, FileState> fileStates = new HashMap<String, FileState>();
+
+        /**
+         * The files seen by the current walk, the files recorded but not seen when the walk completes are checked
+         */
+        private Set<String> passPaths = new HashSet<String>();
+
+        /**
+         * The directories left to walk: the walk continues where the previous run stopped
+         */
+        private final LinkedList<String> pendingDirectories = new LinkedList<String>();
+
+        CacheIndex(File cacheDir) {
+            this.cacheDir = cacheDir;
+        }
+
+        Lock getUsageLock() {
+            return lock.readLock();
+        }
+
+        synchronized void setLimits(IvyTriggerCacheSettings cacheSettings) {
+            maxSizeBytes = cacheSettings.getMaxSizeMegabytes() * 1024 * 1024;
+            maxAgeMillis = TimeUnit.DAYS.toMillis(cacheSettings.getMaxAgeDays());
+        }
+
+        synchronized void recordAccess(String revisionKey, List<File> files, long now) {
+            load();
+            Set<String> relativePaths = new HashSet<String>();
+            for (File file : files) {
+                String relativePath = getRelativePath(file);
+                if (relativePath != null) {
+                    relativePaths.add(relativePath);
+                    //the file is now owned by the module revision
+                    entries.remove(relativePath);
+                }
+            }
+            Entry entry = entries.get(revisionKey);
+            if (entry == null) {
+                entry = new Entry(revisionKey, false);
+                entries.put(revisionKey, entry);
+            }
+            entry.relativePaths.addAll(relativePaths);
+            entry.lastAccess = now;
+        }
+
+        /**
+         * Walks the next part of the cache, then evicts the expired entries and the oldest ones while the cache is too big.
+         * The walk is made without any lock; the usage lock is only taken, without waiting, to delete the chosen files.
+         */
+        void maintain(long now) {
+            synchronized (this) {
+                if (maxSizeBytes <= 0 && maxAgeMillis <= 0) {
+                    return;
+                }
+                load();
+            }
+
+            Map<String, FileState> scannedFiles = new HashMap<String, FileState>();
+            boolean passCompleted = scan(scannedFiles);
+            List<String> missingCandidates;
+            synchronized (this) {
+                missingCandidates = trackScannedFiles(scannedFiles, passCompleted, now);
+            }
+            if (!missingCandidates.isEmpty()) {
+                List<String> missingPaths = new ArrayList<String>();
+                for (String relativePath : missingCandidates) {
+                    if (!new File(cacheDir, relativePath).exists()) {
+                        missingPaths.add(relativePath);
+                    }
+                }
+                synchronized (this) {
+                    dropMissingFiles(missingPaths);
+                }
+            }
+
+            Map<String, Long> victims;
+            synchronized (this) {
+                victims = selectVictims(now);
+            }
+            if (!victims.isEmpty()) {
+                Lock writeLock = lock.writeLock();
+                if (!writeLock.tryLock()) {
+                    //a poll uses the cache, the entries are evicted at the next run
+                    synchronized (this) {
+                        save();
+                    }
+                    return;
+                }
+                try {
+                    synchronized (this) {
+                        evict(victims);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            synchronized (this) {
+                save();
+            }
+        }
+
+        /**
+         * Lists the files of the next directories of the walk, up to {@link #MAX_SCANNED_FILES_PER_RUN} files
+         *
+         * @return true if the walk of the whole cache is completed
+         */
+        private boolean scan(Map<String, FileState> scannedFiles) {
+            synchronized (pendingDirectories) {
+                if (pendingDirectories.isEmpty()) {
+                    pendingDirectories.add("");
+                }
+                while (!pendingDirectories.isEmpty() && scannedFiles.size() < MAX_SCANNED_FILES_PER_RUN) {
+                    String prefix = pendingDirectories.removeFirst();
+                    File[] children = listChildren(new File(cacheDir, prefix));
+                    if (children == null) {
+                        continue;
+                    }
+                    for (File child : children) {
+                        String relativePath = prefix + child.getName();
+                        if (child.isDirectory()) {
+                            pendingDirectories.add(relativePath + "/");
+                        } else if (!ACCESS_INDEX_FILE.equals(relativePath) && !child.getName().endsWith(".lck")) {
+                            scannedFiles.put(relativePath, new FileState(child.length(), child.lastModified()));
+                        }
+                    }
+                }
+                return pendingDirectories.isEmpty();
+            }
+        }
+
+        File[] listChildren(File dir) {
+            return dir.listFiles();
+        }
+
+        /**
+         * Records the sizes of the scanned files and tracks the files no poll recorded
+         *
+         * @return when the walk is completed, the recorded files it didn't see: they may not exist anymore
+         */
+        private List<String> trackScannedFiles(Map<String, FileState> scannedFiles, boolean passCompleted, long now) {
+            Set<String> recordedPaths = new HashSet<String>();
+            for (Entry entry : entries.values()) {
+                if (!entry.unrecorded) {
+                    recordedPaths.addAll(entry.relativePaths);
+                }
+            }
+
+            for (Map.Entry<String, FileState> scannedFile : scannedFiles.entrySet()) {
+                String relativePath = scannedFile.getKey();
+                FileState state = scannedFile.getValue();
+                fileStates.put(relativePath, state);
+                passPaths.add(relativePath);
+                if (recordedPaths.contains(relativePath)) {
+                    continue;
+                }
+                Entry entry = entries.get(relativePath);
+                if (entry == null) {
+                    entry = new Entry(relativePath, true);
+                    entry.relativePaths.add(relativePath);
+                    entry.lastAccess = Math.max(now, state.lastModified);
+                    entries.put(relativePath, entry);
+                } else if (entry.unrecorded) {
+                    entry.lastAccess = Math.max(entry.lastAccess, state.lastModified);
+                }
+            }
+
+            if (!passCompleted) {
+                return Collections.emptyList();
+            }
+            List<String> missingCandidates = new ArrayList<String>();
+            for (Entry entry : entries.values()) {
+                for (String relativePath : entry.relativePaths) {
+                    if (!passPaths.contains(relativePath)) {
+                        missingCandidates.add(relativePath);
+                    }
+                }
+            }
+            fileStates.keySet().retainAll(passPaths);
+            passPaths = new HashSet<String>();
+            return missingCandidates;
+        }
+
+        private void dropMissingFiles(List<String> missingPaths) {
+            for (String relativePath : missingPaths) {
+                fileStates.remove(relativePath);
+            }
+            for (Entry entry : new ArrayList<Entry>(entries.values())) {
+                entry.relativePaths.removeAll(missingPaths);
+                if (entry.relativePaths.isEmpty()) {
+                    entries.remove(entry.key);
+                }
+            }
+        }
+
+        /**
+         * Chooses the entries to evict: the expired ones, then the oldest ones while the cache is too big
+         *
+         * @return the last access time of the chosen entries, by key
+         */
+        private Map<String, Long> selectVictims(long now) {
+            List<Entry> sortedEntries = new ArrayList<Entry>(entries.values());
+            Collections.sort(sortedEntries, new Comparator<Entry>() {
+                public int compare(Entry entry1, Entry entry2) {
+                    return (entry1.lastAccess < entry2.lastAccess) ? -1 : ((entry1.lastAccess == entry2.lastAccess) ? 0 : 1);
+                }
+            });
+
+            long totalSize = 0;
+            for (Entry entry : sortedEntries) {
+                totalSize += getSize(entry);
+            }
+
+            Map<String, Long> victims = new HashMap<String, Long>();
+            for (Entry entry : sortedEntries) {
+                if (victims.size() >= MAX_EVICTIONS_PER_RUN) {
+                    break;
+                }
+                boolean expired = maxAgeMillis > 0 && now - entry.lastAccess > maxAgeMillis;
+                boolean oversized = maxSizeBytes > 0 && totalSize > maxSizeBytes;
+                if (!expired && !oversized) {
+                    break;
+                }
+                victims.put(entry.key, entry.lastAccess);
+                totalSize -= getSize(entry);
+            }
+            return victims;
+        }
+
+        /**
+         * Deletes the files of the chosen entries, unless a poll used them since they were chosen
+         */
+        private void evict(Map<String, Long> victims) {
+            int evictions = 0;
+            for (Map.Entry<String, Long> victim : victims.entrySet()) {
+                Entry entry = entries.get(victim.getKey());
+                if (entry == null || entry.lastAccess != victim.getValue()) {
+                    continue;
+                }
+                for (String relativePath : entry.relativePaths) {
+                    new File(cacheDir, relativePath).delete();
+                    fileStates.remove(relativePath);
+                }
+                entries.remove(entry.key);
+                evictions++;
+            }
+            if (evictions > 0) {
+                LOGGER.fine(String.format("Evicted %s entries from the IvyTrigger cache %s", evictions, cacheDir));
+            }
+        }
+
+        /**
+         * @return the size of the files of the entry seen by the walk
+         */
+        private long getSize(Entry entry) {
+            long size = 0;
+            for (String relativePath : entry.relativePaths) {
+                FileState state = fileStates.get(relativePath);
+                if (state != null) {
+                    size += state.length;
+                }
+            }
+            return size;
+        }
+
+        private String getRelativePath(File file) {
+            String cachePath = cacheDir.getAbsolutePath() + File.separator;
+            String filePath = file.getAbsolutePath();
+            if (!filePath.startsWith(cachePath)) {
+                return null;
+            }
+            return filePath.substring(cachePath.length()).replace(File.separatorChar, '/');
+        }
+
+        private void load() {
+            if (loaded) {
+                return;
+            }
+            loaded = true;
+            File indexFile = new File(cacheDir, ACCESS_INDEX_FILE);
+            if (!indexFile.exists()) {
+                return;
+            }
+            Properties properties = new Properties();
+            try {
+                InputStream in = new FileInputStream(indexFile);
+                try {
+                    properties.load(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Can't read the IvyTrigger cache index " + indexFile, ioe);
+                return;
+            }
+            for (String key : properties.stringPropertyNames()) {
+                String[] values = properties.getProperty(key).split("\\" + FILE_SEPARATOR);
+                Entry entry = new Entry(key, values[1].length() == 0);
+                entry.lastAccess = Long.parseLong(values[0]);
+                for (int i = 2; i < values.length; i++) {
+                    entry.relativePaths.add(values[i]);
+                }
+                entries.put(key, entry);
+            }
+        }
+
+        private void save() {
+            Properties properties = new Properties();
+            for (Entry entry : entries.values()) {
+                StringBuilder value = new StringBuilder();
+                value.append(entry.lastAccess).append(FILE_SEPARATOR).append(entry.unrecorded ? "" : "r");
+                for (String relativePath : entry.relativePaths) {
+                    value.append(FILE_SEPARATOR).append(relativePath);
+                }
+                properties.setProperty(entry.key, value.toString());
+            }
+            File indexFile = new File(cacheDir, ACCESS_INDEX_FILE);
+            try {
+                OutputStream out = new FileOutputStream(indexFile);
+                try {
+                    properties.store(out, "IvyTrigger cache access times");
+                } finally {
+                    out.close();
+                }
+            } catch (IOException ioe) {
+                LOGGER.log(Level.WARNING, "Can't write the IvyTrigger cache index " + indexFile, ioe);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final String key;
+
+        /**
+         * true for a file found in the cache without being recorded by a poll
+         */
+        private final boolean unrecorded;
+
+        private final Set<String> relativePaths = new HashSet<String>();
+
+        private long lastAccess;
+
+        private Entry(String key, boolean unrecorded) {
+            this.key = key;
+            this.unrecorded = unrecorded;
+        }
+    }
+
+    private static class FileState {
+
+        private final long length;
+
+        private final long lastModified;
+
+        private FileState(long length, long lastModified) {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.io.Serializable;
+
+/**
+ * The global cache options, sent to the polling node with each evaluation.
+ */
+public class IvyTriggerCacheSettings implements Serializable {
+
+    private final boolean shared;
+
+    private final long maxSizeMegabytes;
+
+    private final int maxAgeDays;
+
+    public IvyTriggerCacheSettings(boolean shared, long maxSizeMegabytes, int maxAgeDays) {
+        this.shared = shared;
+        this.maxSizeMegabytes = maxSizeMegabytes;
+        this.maxAgeDays = maxAgeDays;
+    }
+
+    /**
+     * @return true if the jobs of a node share one Ivy cache
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * @return the size the cache is reduced to by the evictions, 0 for no limit
+     */
+    public long getMaxSizeMegabytes() {
+        return maxSizeMegabytes;
+    }
+
+    /**
+     * @return the number of days after which an unused module revision is evicted, 0 for no limit
+     */
+    public int getMaxAgeDays() {
+        return maxAgeDays;
+    }
+
+    public boolean isEvictionEnabled() {
+        return maxSizeMegabytes > 0 || maxAgeDays > 0;
+    }
+}
@@ -0,0 +1,320 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.ivy.Ivy;
+import org.jenkinsci.plugins.ivytrigger.util.ContentDigest;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * I list the revisions available for the dynamic dependencies of the polls of the node I am loaded on,
+ * once per repository and module whatever the number of jobs depending on it.
+ * <p/>
+ * The polls skipping the resolve when nothing has changed give me their repository (their Ivy settings)
+ * and the modules they resolved from a dynamic revision.
+ * A background thread lists the revisions of each of these modules every {@link #FEED_INTERVAL} milliseconds:
+ * a poll then compares its previous listings with mine, without calling the repository,
+ * and resolves only when a module of its graph has changed.
+ * A poll only uses a listing made after its previous listings: it lists the module itself
+ * when I haven't listed it since, and sees a publish I haven't listed yet.
+ * On the master, I also start a poll of the jobs depending on a changed module (see {@link IvyTriggerModuleIndex}),
+ * without waiting for their schedule. The jobs are only known by the master:
+ * the modules listed on a slave are seen as changed by the next scheduled poll of their jobs.
+ * <p/>
+ * A module no poll asked for during {@link #UNUSED_EVICTION_DELAY} milliseconds is not listed anymore.
+ * The Ivy instances are held weakly: a repository whose instance was evicted from the {@link IvyTriggerEngineCache}
+ * is listed again when a poll gives a new one.
+ */
+public class IvyTriggerChangeFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(IvyTriggerChangeFeed.class.getName());
+
+    static final long FEED_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * A listing older than two intervals is not used: the background thread is late or stopped
+     */
+    static final long MAX_LISTING_AGE = 2 * FEED_INTERVAL;
+
+    static final long UNUSED_EVICTION_DELAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final IvyTriggerChangeFeed INSTANCE = new IvyTriggerChangeFeed();
+
+    private final Map<String, Repository> repositories = new HashMap<String, Repository>();
+
+    private ScheduledExecutorService executor;
+
+    IvyTriggerChangeFeed() {
+    }
+
+    /**
+     * @return the feed of the current JVM (master or slave)
+     */
+    public static IvyTriggerChangeFeed get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes the key of a repository: the polls with the same settings and variables share its listings
+     */
+    public static String computeKey(File settingsFile, String settingsContent, Map<String, String> variables) {
+        return new ContentDigest()
+                .add(settingsFile.getAbsolutePath())
+                .add(settingsContent)
+                .add(variables)
+                .toHex();
+    }
+
+    /**
+     * Adds the modules of a poll to the listed modules of its repository
+     *
+     * @param ivy      the Ivy instance of the poll, used to list the revisions
+     * @param listings the revision listings of the poll by module id, up to date: they are the listings of the modules new to the feed
+     * @param listedAt the time the poll listed them
+     */
+    public synchronized void watch(String repositoryKey, Ivy ivy, Map<String, String> listings, long listedAt) {
+        long now = System.currentTimeMillis();
+        Repository repository = repositories.get(repositoryKey);
+        if (repository == null) {
+            repository = new Repository();
+            repositories.put(repositoryKey, repository);
+        }
+        repository.ivy = new WeakReference<Ivy>(ivy);
+        for (Map.Entry<String, String> listing : listings.entrySet()) {
+            ModuleState state = repository.modules.get(listing.getKey());
+            if (state == null) {
+                repository.modules.put(listing.getKey(), new ModuleState(listing.getValue(), listedAt, now));
+            } else {
+                state.lastUsed = now;
+            }
+        }
+        startPolling();
+    }
+
+    /**
+     * Gets the revisions available for a module, as listed by the background thread
+     *
+     * @param moduleId the module id, as {@code org#name}
+     * @return the listing, or null if the module is not listed or its listing is too old
+     */
+    public String getRevisionListing(String repositoryKey, String moduleId) {
+        Listing listing = getListing(repositoryKey, moduleId, Long.MIN_VALUE);
+        return (listing == null) ? null : listing.getRevisions();
+    }
+
+    /**
+     * Gets the revisions available for a module, as listed by the background thread after a given time
+     *
+     * @param moduleId    the module id, as {@code org#name}
+     * @param listedAfter the time of the listing of the caller: an older listing doesn't show the publishes since
+     * @return the listing, or null if the module is not listed, or its listing is too old or not newer than the given time
+     */
+    public synchronized Listing getListing(String repositoryKey, String moduleId, long listedAfter) {
+        Repository repository = repositories.get(repositoryKey);
+        if (repository == null) {
+            return null;
+        }
+        ModuleState state = repository.modules.get(moduleId);
+        if (state == null || System.currentTimeMillis() - state.listedAt > MAX_LISTING_AGE || state.listedAt <= listedAfter) {
+            return null;
+        }
+        return new Listing(state.listing, state.listedAt);
+    }
+
+    private synchronized void startPolling() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "IvyTrigger change feed");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                for (String moduleId : scan()) {
+                    for (IvyTrigger trigger : IvyTriggerModuleIndex.get().getTriggers(moduleId)) {
+                        if (!trigger.isSkipResolveIfUnchanged()) {
+                            continue;
+                        }
+                        try {
+                            //the job may poll on a slave, whose listing can be older than mine
+                            trigger.requestResolve();
+                        } catch (RuntimeException re) {
+                            LOGGER.log(Level.WARNING, "Can't start the poll of an IvyTrigger depending on a changed module", re);
+                        }
+                    }
+                }
+            }
+        }, FEED_INTERVAL, FEED_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Lists the revisions of the modules of all the repositories
+     *
+     * @return the ids of the modules with new revisions since the previous scan
+     */
+    List<String> scan() {
+        Map<String, Ivy> ivyByRepository = new HashMap<String, Ivy>();
+        Map<String, List<String>> modulesByRepository = new HashMap<String, List<String>>();
+        synchronized (this) {
+            evictUnused(System.currentTimeMillis());
+            for (Map.Entry<String, Repository> repository : repositories.entrySet()) {
+                Ivy ivy = repository.getValue().ivy.get();
+                if (ivy == null) {
+                    continue;
+                }
+                ivyByRepository.put(repository.getKey(), ivy);
+                modulesByRepository.put(repository.getKey(), new ArrayList<String>(repository.getValue().modules.keySet()));
+            }
+        }
+
+        //the repositories are called without holding the lock, the polls reading the listings don't wait for them
+        List<String> changedModules = new ArrayList<String>();
+        for (Map.Entry<String, List<String>> modules : modulesByRepository.entrySet()) {
+            Ivy ivy = ivyByRepository.get(modules.getKey());
+            //a poll holds the instance for its whole resolve, a busy repository is listed at the next scan
+            Lock ivyUsageLock = IvyTriggerEngineCache.getUsageLock(ivy);
+            if (!ivyUsageLock.tryLock()) {
+                LOGGER.fine("The repository " + modules.getKey() + " is busy resolving, its modules are listed at the next scan");
+                continue;
+            }
+            try {
+                for (String moduleId : modules.getValue()) {
+                    String listing;
+                    long listedAt = System.currentTimeMillis();
+                    try {
+                        listing = getRevisionListing(ivy, moduleId);
+                    } catch (RuntimeException re) {
+                        LOGGER.log(Level.WARNING, "Can't list the revisions of " + moduleId, re);
+                        continue;
+                    }
+                    if (update(modules.getKey(), moduleId, listing, listedAt)) {
+                        changedModules.add(moduleId);
+                    }
+                }
+            } finally {
+                ivyUsageLock.unlock();
+            }
+        }
+        return changedModules;
+    }
+
+    /**
+     * @return true if the listing has changed
+     */
+    private synchronized boolean update(String repositoryKey, String moduleId, String listing, long listedAt) {
+        Repository repository = repositories.get(repositoryKey);
+        ModuleState state = (repository == null) ? null : repository.modules.get(moduleId);
+        if (state == null || listedAt < state.listedAt) {
+            //evicted, or listed again by a poll in the meantime
+            return false;
+        }
+        boolean changed = !listing.equals(state.listing);
+        state.listing = listing;
+        state.listedAt = listedAt;
+        return changed;
+    }
+
+    private void evictUnused(long now) {
+        Iterator<Repository> repositoryIt = repositories.values().iterator();
+        while (repositoryIt.hasNext()) {
+            Repository repository = repositoryIt.next();
+            Iterator<ModuleState> moduleIt = repository.modules.values().iterator();
+            while (moduleIt.hasNext()) {
+                if (now - moduleIt.next().lastUsed > UNUSED_EVICTION_DELAY) {
+                    moduleIt.remove();
+                }
+            }
+            if (repository.modules.isEmpty()) {
+                repositoryIt.remove();
+            }
+        }
+    }
+
+    /**
+     * Lists the revisions available in the repository for a module
+     *
+     * @param moduleId the module id, as {@code org#name}
+     * @return the sorted revisions, each one followed by a comma
+     */
+    static String getRevisionListing(Ivy ivy, String moduleId) {
+        String organisation = moduleId.substring(0, moduleId.indexOf('#'));
+        String name = moduleId.substring(moduleId.indexOf('#') + 1);
+        String[] revisions;
+        //a poll using the same instance keeps its logger while it holds it
+        Lock ivyUsageLock = IvyTriggerEngineCache.getUsageLock(ivy);
+        ivyUsageLock.lock();
+        try {
+            revisions = ivy.listRevisions(organisation, name);
+        } finally {
+            ivyUsageLock.unlock();
+        }
+        Arrays.sort(revisions);
+        StringBuilder listing = new StringBuilder();
+        for (String revision : revisions) {
+            listing.append(revision).append(',');
+        }
+        return listing.toString();
+    }
+
+    /**
+     * The revisions of a module, listed at a given time
+     */
+    public static class Listing {
+
+        private final String revisions;
+
+        private final long listedAt;
+
+        private Listing(String revisions, long listedAt) {
+            this.revisions = revisions;
+            this.listedAt = listedAt;
+        }
+
+        public String getRevisions() {
+            return revisions;
+        }
+
+        public long getListedAt() {
+            return listedAt;
+        }
+    }
+
+    private static class Repository {
+
+        private WeakReference<Ivy> ivy;
+
+        private final Map<String, ModuleState> modules = new HashMap<String, ModuleState>();
+    }
+
+    private static class ModuleState {
+
+        private String listing;
+
+        private long listedAt;
+
+        private long lastUsed;
+
+        private ModuleState(String listing, long listedAt, long now) {
+            this.listing = listing;
+            this.listedAt = listedAt;
+            this.lastUsed = now;
+        }
+    }
+}
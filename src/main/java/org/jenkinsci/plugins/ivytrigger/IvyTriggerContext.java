@@ -1,15 +1,21 @@
 package org.jenkinsci.plugins.ivytrigger;
 
 import org.jenkinsci.lib.xtrigger.XTriggerContext;
+import org.jenkinsci.plugins.ivytrigger.util.ContentDigest;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * @author Gregory Boissinot
  */
 public class IvyTriggerContext implements XTriggerContext {
 
+    //the default value computed for the first versions, the contexts they serialized stay readable
+    private static final long serialVersionUID = 4458862685951788011L;
+
     private Map<String, IvyDependencyValue> dependencies = new HashMap<String, IvyDependencyValue>();
 
     public IvyTriggerContext(Map<String, IvyDependencyValue> dependencies) {
@@ -19,4 +25,30 @@ public class IvyTriggerContext implements XTriggerContext {
     public Map<String, IvyDependencyValue> getDependencies() {
         return dependencies;
     }
+
+    /**
+     * Computes a fingerprint of the dependency graph, independent of the map ordering
+     *
+     * @return a hex digest of the dependency ids, revisions and artifacts
+     */
+    public String getFingerprint() {
+        ContentDigest digest = new ContentDigest();
+        if (dependencies == null) {
+            return digest.toHex();
+        }
+        for (Map.Entry<String, IvyDependencyValue> dependency : new TreeMap<String, IvyDependencyValue>(dependencies).entrySet()) {
+            digest.add(dependency.getKey());
+            digest.add(dependency.getValue().getRevision());
+            List<IvyArtifactValue> artifacts = dependency.getValue().getArtifacts();
+            if (artifacts != null) {
+                for (IvyArtifactValue artifact : artifacts) {
+                    digest.add(artifact.getFullName());
+                    digest.add(String.valueOf(artifact.getLastModificationDate()));
+                    digest.add(artifact.getChecksum());
+                }
+            }
+            digest.add("");
+        }
+        return digest.toHex();
+    }
 }
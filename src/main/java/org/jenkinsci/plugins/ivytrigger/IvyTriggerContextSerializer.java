@@ -0,0 +1,321 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * I read and write the {@link IvyTriggerContext} persisted in the job directory.
+ * <p/>
+ * The format is:
+ * <pre>
+ * header     : 'I' 'V' 'T' 'C', version (byte), flags (byte)
+ * body       : string table, dependencies; GZIP compressed if the flags say so
+ * strings    : count (varint), then for each string its UTF-8 length (varint) and bytes
+ * deps       : count + 1 (varint, 0 for a null map), then for each dependency:
+ *              id ref, revision ref, artifact count + 1 (0 for a null list), then for each artifact:
+ *              name ref, extension ref, last modification date (zigzag varint), checksum ref (since version 2)
+ * </pre>
+ * A string ref is the index of the string in the table plus one, 0 standing for null.
+ * <p/>
+ * Files written with Java serialization by the previous versions are still read.
+ * Writes go to a temporary file of the same directory, which is then renamed over the target.
+ */
+public class IvyTriggerContextSerializer {
+
+    static final int VERSION = 2;
+
+    static final int FLAG_COMPRESSED = 1;
+
+    private static final byte[] MAGIC = {'I', 'V', 'T', 'C'};
+
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+
+    /**
+     * Graphs with more dependencies than this are compressed
+     */
+    static final int COMPRESSION_THRESHOLD = 500;
+
+    /**
+     * Tells whether the file was written by a previous version with Java serialization
+     */
+    public boolean isLegacyFormat(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readUnsignedShort() == JAVA_SERIALIZATION_MAGIC;
+        } catch (EOFException eofe) {
+            return false;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads a context written in the current format or with Java serialization
+     */
+    public IvyTriggerContext read(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file));
+        try {
+            in.mark(MAGIC.length);
+            int first = in.read();
+            int second = in.read();
+            in.reset();
+            if (((first << 8) | second) == JAVA_SERIALIZATION_MAGIC) {
+                return readLegacy(in);
+            }
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private IvyTriggerContext readLegacy(InputStream in) throws IOException {
+        ObjectInputStream objectInputStream = new ObjectInputStream(in);
+        try {
+            return (IvyTriggerContext) objectInputStream.readObject();
+        } catch (ClassNotFoundException cnfe) {
+            IOException ioe = new IOException("Can't read the serialized IvyTriggerContext: " + cnfe.getMessage());
+            ioe.initCause(cnfe);
+            throw ioe;
+        }
+    }
+
+    IvyTriggerContext read(InputStream in) throws IOException {
+        for (byte expected : MAGIC) {
+            if (in.read() != expected) {
+                throw new IOException("Not an IvyTriggerContext file");
+            }
+        }
+        int version = in.read();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported IvyTriggerContext file version " + version);
+        }
+        int flags = in.read();
+        if (flags < 0) {
+            throw new EOFException();
+        }
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            in = new GZIPInputStream(in);
+        }
+
+        String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[readVarInt(in)];
+            readFully(in, bytes);
+            strings[i] = new String(bytes, "UTF-8");
+        }
+
+        int dependencyCount = readVarInt(in) - 1;
+        if (dependencyCount < 0) {
+            return new IvyTriggerContext(null);
+        }
+        Map<String, IvyDependencyValue> dependencies = new HashMap<String, IvyDependencyValue>(dependencyCount * 2);
+        for (int i = 0; i < dependencyCount; i++) {
+            String dependencyId = readString(in, strings);
+            String revision = readString(in, strings);
+            List<IvyArtifactValue> artifacts = null;
+            int artifactCount = readVarInt(in) - 1;
+            if (artifactCount >= 0) {
+                artifacts = new ArrayList<IvyArtifactValue>(artifactCount);
+                for (int j = 0; j < artifactCount; j++) {
+                    String name = readString(in, strings);
+                    String extension = readString(in, strings);
+                    long lastModificationDate = readVarLong(in);
+                    String checksum = (version >= 2) ? readString(in, strings) : null;
+                    artifacts.add(new IvyArtifactValue(name, extension, lastModificationDate, checksum));
+                }
+            }
+            dependencies.put(dependencyId, new IvyDependencyValue(revision, artifacts));
+        }
+        return new IvyTriggerContext(dependencies);
+    }
+
+    /**
+     * Writes the context atomically: the target file is either the previous or the new context
+     */
+    public void write(IvyTriggerContext context, File file) throws IOException {
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        try {
+            FileOutputStream fileOutputStream = new FileOutputStream(tempFile);
+            try {
+                OutputStream out = new BufferedOutputStream(fileOutputStream);
+                write(context, out);
+                out.flush();
+                fileOutputStream.getFD().sync();
+            } finally {
+                fileOutputStream.close();
+            }
+            if (!tempFile.renameTo(file)) {
+                //Windows doesn't rename over an existing file
+                file.delete();
+                if (!tempFile.renameTo(file)) {
+                    throw new IOException("Can't rename " + tempFile + " to " + file);
+                }
+            }
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    void write(IvyTriggerContext context, OutputStream out) throws IOException {
+        Map<String, IvyDependencyValue> dependencies = context.getDependencies();
+        boolean compressed = dependencies != null && dependencies.size() > COMPRESSION_THRESHOLD;
+
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(compressed ? FLAG_COMPRESSED : 0);
+
+        GZIPOutputStream gzipOutputStream = null;
+        if (compressed) {
+            gzipOutputStream = new GZIPOutputStream(out);
+            out = gzipOutputStream;
+        }
+
+        //Build the string table
+        Map<String, Integer> stringRefs = new LinkedHashMap<String, Integer>();
+        if (dependencies != null) {
+            for (Map.Entry<String, IvyDependencyValue> dependency : dependencies.entrySet()) {
+                addString(stringRefs, dependency.getKey());
+                addString(stringRefs, dependency.getValue().getRevision());
+                List<IvyArtifactValue> artifacts = dependency.getValue().getArtifacts();
+                if (artifacts != null) {
+                    for (IvyArtifactValue artifact : artifacts) {
+                        addString(stringRefs, artifact.getName());
+                        addString(stringRefs, artifact.getExtension());
+                        addString(stringRefs, artifact.getChecksum());
+                    }
+                }
+            }
+        }
+        writeVarInt(out, stringRefs.size());
+        for (String string : stringRefs.keySet()) {
+            byte[] bytes = string.getBytes("UTF-8");
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+
+        //Write the dependencies
+        if (dependencies == null) {
+            writeVarInt(out, 0);
+        } else {
+            writeVarInt(out, dependencies.size() + 1);
+            for (Map.Entry<String, IvyDependencyValue> dependency : dependencies.entrySet()) {
+                writeString(out, stringRefs, dependency.getKey());
+                writeString(out, stringRefs, dependency.getValue().getRevision());
+                List<IvyArtifactValue> artifacts = dependency.getValue().getArtifacts();
+                if (artifacts == null) {
+                    writeVarInt(out, 0);
+                } else {
+                    writeVarInt(out, artifacts.size() + 1);
+                    for (IvyArtifactValue artifact : artifacts) {
+                        writeString(out, stringRefs, artifact.getName());
+                        writeString(out, stringRefs, artifact.getExtension());
+                        writeVarLong(out, artifact.getLastModificationDate());
+                        writeString(out, stringRefs, artifact.getChecksum());
+                    }
+                }
+            }
+        }
+
+        if (gzipOutputStream != null) {
+            gzipOutputStream.finish();
+        }
+    }
+
+    private static void addString(Map<String, Integer> stringRefs, String string) {
+        if (string != null && !stringRefs.containsKey(string)) {
+            stringRefs.put(string, stringRefs.size() + 1);
+        }
+    }
+
+    private static void writeString(OutputStream out, Map<String, Integer> stringRefs, String string) throws IOException {
+        writeVarInt(out, (string == null) ? 0 : stringRefs.get(string));
+    }
+
+    private static String readString(InputStream in, String[] strings) throws IOException {
+        int ref = readVarInt(in);
+        if (ref == 0) {
+            return null;
+        }
+        if (ref > strings.length) {
+            throw new IOException("Invalid string reference " + ref);
+        }
+        return strings[ref - 1];
+    }
+
+    static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        //zigzag encoding, so that the small negative values stay short
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.write((int) zigzag);
+    }
+
+    static long readVarLong(InputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException();
+            }
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * I write the persisted contexts on a background thread, so that the polls don't wait for the job directory.
+ * <p/>
+ * Writes are coalesced per file: when a context is queued for a file that already has a pending write,
+ * only the latest context is written.
+ */
+public class IvyTriggerContextWriter {
+
+    private static final Logger LOGGER = Logger.getLogger(IvyTriggerContextWriter.class.getName());
+
+    private static final IvyTriggerContextWriter INSTANCE = new IvyTriggerContextWriter();
+
+    private final ConcurrentMap<File, IvyTriggerContext> pendingContexts = new ConcurrentHashMap<File, IvyTriggerContext>();
+
+    private final ExecutorService executor;
+
+    private final IvyTriggerContextSerializer serializer;
+
+    IvyTriggerContextWriter() {
+        this(Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "IvyTrigger context writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), new IvyTriggerContextSerializer());
+    }
+
+    IvyTriggerContextWriter(ExecutorService executor, IvyTriggerContextSerializer serializer) {
+        this.executor = executor;
+        this.serializer = serializer;
+    }
+
+    public static IvyTriggerContextWriter get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queues the context to be written to the file
+     */
+    public void submit(IvyTriggerContext context, final File contextFile) {
+        if (pendingContexts.put(contextFile, context) == null) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    write(contextFile);
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets the context waiting to be written to the file
+     *
+     * @return the pending context, null if the file is up to date
+     */
+    public IvyTriggerContext getPendingContext(File contextFile) {
+        return pendingContexts.get(contextFile);
+    }
+
+    private void write(final File contextFile) {
+        IvyTriggerContext context = pendingContexts.get(contextFile);
+        if (context == null) {
+            return;
+        }
+        try {
+            serializer.write(context, contextFile);
+        } catch (IOException ioe) {
+            LOGGER.log(Level.WARNING, "Can't write the IvyTriggerContext to " + contextFile, ioe);
+        } finally {
+            //a context queued meanwhile was not written: queue it again
+            if (!pendingContexts.remove(contextFile, context) && pendingContexts.containsKey(contextFile)) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        write(contextFile);
+                    }
+                });
+            }
+        }
+    }
+}
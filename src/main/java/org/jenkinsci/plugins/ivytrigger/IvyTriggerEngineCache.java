@@ -0,0 +1,153 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.ivy.Ivy;
+import org.jenkinsci.plugins.ivytrigger.util.ContentDigest;
+import org.jenkinsci.plugins.ivytrigger.util.IncludedSettingsFiles;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * I keep the configured {@link Ivy} instances of the node I am loaded on, so that successive polls
+ * with the same settings content, included settings files, variables and cache directories go straight to the resolve.
+ * <p/>
+ * An instance is evicted when the key computed for its namespace (the job) changes,
+ * or when it has not been used for {@link #UNUSED_EVICTION_DELAY} milliseconds.
+ */
+public class IvyTriggerEngineCache {
+
+    static final long UNUSED_EVICTION_DELAY = TimeUnit.MINUTES.toMillis(30);
+
+    private static final IvyTriggerEngineCache INSTANCE = new IvyTriggerEngineCache();
+
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    private final Map<String, String> keysByNamespace = new HashMap<String, String>();
+
+    /**
+     * The locks of the instances in use, by instance
+     */
+    private static final Map<Ivy, Lock> USAGE_LOCKS = new WeakHashMap<Ivy, Lock>();
+
+    IvyTriggerEngineCache() {
+    }
+
+    /**
+     * @return the cache of the current JVM (master or slave)
+     */
+    public static IvyTriggerEngineCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the lock held while an instance is used: a cached instance is shared by the polls of a job and by the change feed,
+     * the holder of the lock installs its logger for the time it uses the instance
+     */
+    public static Lock getUsageLock(Ivy ivy) {
+        synchronized (USAGE_LOCKS) {
+            Lock lock = USAGE_LOCKS.get(ivy);
+            if (lock == null) {
+                lock = new ReentrantLock();
+                USAGE_LOCKS.put(ivy, lock);
+            }
+            return lock;
+        }
+    }
+
+    /**
+     * Computes the cache key of a configured Ivy instance
+     *
+     * @param settingsFile       the ivysettings file, the base of the relative paths it includes
+     * @param settingsContent    the content of the ivysettings file
+     * @param includedFiles      the signature of the files included by the ivysettings file, see {@link IncludedSettingsFiles}
+     * @param variables          the variables injected in the settings
+     * @param cacheDir           the Ivy repository cache directory
+     * @param resolutionCacheDir the Ivy resolution cache directory
+     * @return a hex digest of the given inputs
+     */
+    public static String computeKey(File settingsFile, String settingsContent, String includedFiles, Map<String, String> variables, File cacheDir, File resolutionCacheDir) {
+        return new ContentDigest()
+                .add(settingsFile.getAbsolutePath())
+                .add(settingsContent)
+                .add(includedFiles)
+                .add(variables)
+                .add(cacheDir.getAbsolutePath())
+                .add(resolutionCacheDir.getAbsolutePath())
+                .toHex();
+    }
+
+    /**
+     * Gets the Ivy instance cached for the namespace and key
+     *
+     * @return the cached instance or null if there is none for this key
+     */
+    public synchronized Ivy getIvy(String namespace, String key) {
+        long now = System.currentTimeMillis();
+        evictUnused(now);
+
+        String previousKey = keysByNamespace.get(namespace);
+        if (previousKey != null && !previousKey.equals(key)) {
+            keysByNamespace.remove(namespace);
+            evictIfUnreferenced(previousKey);
+        }
+
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.lastUsed = now;
+        keysByNamespace.put(namespace, key);
+        return entry.ivy;
+    }
+
+    /**
+     * Records a newly configured Ivy instance for the namespace and key
+     */
+    public synchronized void putIvy(String namespace, String key, Ivy ivy) {
+        String previousKey = keysByNamespace.put(namespace, key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            evictIfUnreferenced(previousKey);
+        }
+        entries.put(key, new Entry(ivy, System.currentTimeMillis()));
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictIfUnreferenced(String key) {
+        if (!keysByNamespace.containsValue(key)) {
+            entries.remove(key);
+        }
+    }
+
+    private void evictUnused(long now) {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (now - entry.getValue().lastUsed > UNUSED_EVICTION_DELAY) {
+                it.remove();
+                keysByNamespace.values().removeAll(Collections.singleton(entry.getKey()));
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final Ivy ivy;
+
+        private long lastUsed;
+
+        private Entry(Ivy ivy, long lastUsed) {
+            this.ivy = ivy;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
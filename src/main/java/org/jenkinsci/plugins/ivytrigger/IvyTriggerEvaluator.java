@@ -2,83 +2,265 @@ package org.jenkinsci.plugins.ivytrigger;
 
 import hudson.FilePath;
 import hudson.remoting.VirtualChannel;
+import hudson.util.StreamTaskListener;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyPatternHelper;
 import org.apache.ivy.core.cache.ArtifactOrigin;
 import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
 import org.apache.ivy.core.cache.RepositoryCacheManager;
 import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.id.ModuleId;
 import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.core.report.ResolveReport;
 import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.IvyNodeCallers;
+import org.apache.ivy.core.resolve.ResolveOptions;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
 import org.apache.ivy.core.settings.IvySettings;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.DualResolver;
+import org.apache.ivy.plugins.resolver.FileSystemResolver;
+import org.apache.ivy.plugins.version.VersionMatcher;
+import org.apache.ivy.util.url.URLHandler;
+import org.apache.ivy.util.url.URLHandlerRegistry;
 import org.jenkinsci.lib.xtrigger.XTriggerException;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.jenkinsci.plugins.ivytrigger.util.BoundedOutputStream;
+import org.jenkinsci.plugins.ivytrigger.util.ContentDigest;
+import org.jenkinsci.plugins.ivytrigger.util.IncludedSettingsFiles;
+import org.jenkinsci.plugins.ivytrigger.util.FilePathFactory;
+import org.jenkinsci.plugins.ivytrigger.util.PropertiesFileContentExtractor;
 
 import java.io.*;
+import java.net.URL;
+import java.nio.charset.Charset;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
 
 /**
  * @author Gregory Boissinot
  */
-public class IvyTriggerEvaluator implements FilePath.FileCallable<Map<String, IvyDependencyValue>> {
+public class IvyTriggerEvaluator implements FilePath.FileCallable<IvyTriggerEvaluatorResult> {
+
+    private static final Charset LOG_CHARSET = Charset.forName("UTF-8");
+
+    /**
+     * The log of an evaluation keeps its first and its last bytes, up to 1 MB
+     */
+    static final int MAX_LOG_HEAD = 256 * 1024;
+
+    static final int MAX_LOG_TAIL = 768 * 1024;
 
     private String namespace;
 
-    private FilePath ivyFilePath;
+    private List<String> ivyFileCandidates;
 
-    private FilePath ivySettingsFilePath;
+    private List<String> ivySettingsFileCandidates;
 
-    private FilePath propertiesFilePath;
+    private List<List<String>> propertiesFileCandidates;
 
     private String propertiesContent;
 
-    private XTriggerLog log;
+    /**
+     * The log of the poll, buffered on the polling node and sent back with the result
+     */
+    private transient XTriggerLog log;
+
+    /**
+     * The timings of the phases run on the polling node, sent back with the result
+     */
+    private transient IvyTriggerPollTimings timings;
 
     private boolean debug;
 
     private Map<String, String> envVars;
 
+    private boolean skipResolveIfUnchanged;
+
+    private boolean metadataOnly;
+
+    private boolean watchRepository;
+
+    private IvyTriggerCacheSettings cacheSettings;
+
+    private String previousInputsFingerprint;
+
+    private Map<String, String> previousRevisionListings;
+
+    private long previousListedAt;
+
+    /**
+     * The time of the oldest listing an up to date poll compared with
+     */
+    private long listedAt;
+
+    /**
+     * A module has new revisions since the previous poll: a publish is seen, as if it was notified
+     */
+    private boolean publishSeen;
+
+    private boolean resolveRequested;
+
     public IvyTriggerEvaluator(String namespace,
-                               FilePath ivyFilePath,
-                               FilePath ivySettingsFilePath,
-                               FilePath propertiesFilePath,
+                               List<String> ivyFileCandidates,
+                               List<String> ivySettingsFileCandidates,
+                               List<List<String>> propertiesFileCandidates,
                                String propertiesContent,
-                               XTriggerLog log,
                                boolean debug,
-                               Map<String, String> envVars) {
+                               Map<String, String> envVars,
+                               boolean skipResolveIfUnchanged,
+                               boolean metadataOnly,
+                               boolean watchRepository,
+                               IvyTriggerEvaluatorResult previousResult,
+                               boolean resolveRequested,
+                               IvyTriggerCacheSettings cacheSettings) {
         this.namespace = namespace;
-        this.ivyFilePath = ivyFilePath;
-        this.ivySettingsFilePath = ivySettingsFilePath;
-        this.propertiesFilePath = propertiesFilePath;
+        this.ivyFileCandidates = ivyFileCandidates;
+        this.ivySettingsFileCandidates = ivySettingsFileCandidates;
+        this.propertiesFileCandidates = propertiesFileCandidates;
         this.propertiesContent = propertiesContent;
-        this.log = log;
         this.debug = debug;
         this.envVars = envVars;
+        this.skipResolveIfUnchanged = skipResolveIfUnchanged;
+        this.metadataOnly = metadataOnly;
+        this.watchRepository = watchRepository;
+        this.cacheSettings = cacheSettings;
+        this.resolveRequested = resolveRequested;
+        if (previousResult != null) {
+            this.previousInputsFingerprint = previousResult.getInputsFingerprint();
+            this.previousRevisionListings = previousResult.getRevisionListings();
+            this.previousListedAt = previousResult.getListedAt();
+        }
     }
 
-    public Map<String, IvyDependencyValue> invoke(File launchDir, VirtualChannel channel) throws IOException, InterruptedException {
-        Map<String, IvyDependencyValue> result;
+    /**
+     * Looks up the files, loads the properties and resolves, all on the polling node,
+     * so that a poll makes one call to the node
+     *
+     * @return the result, with the log of the poll
+     */
+    public IvyTriggerEvaluatorResult invoke(File launchDir, VirtualChannel channel) throws IOException, InterruptedException {
+        BoundedOutputStream logBuffer = new BoundedOutputStream(MAX_LOG_HEAD, MAX_LOG_TAIL);
+        StreamTaskListener listener = new StreamTaskListener(logBuffer, LOG_CHARSET);
+        log = new XTriggerLog(listener);
+        timings = new IvyTriggerPollTimings();
+        IvyTriggerEvaluatorResult result;
         try {
-            Ivy ivy = getIvyObject(launchDir, log);
-            log.info("\nResolving Ivy dependencies.");
-            ResolveReport resolveReport = ivy.resolve(new File(ivyFilePath.getRemote()));
-            if (resolveReport.hasError()) {
-                List problems = resolveReport.getAllProblemMessages();
-                if (problems != null && !problems.isEmpty()) {
-                    StringBuffer errorMsgs = new StringBuffer();
-                    errorMsgs.append("Errors:\n");
-                    for (Object problem : problems) {
-                        errorMsgs.append(problem);
-                        errorMsgs.append("\n");
+            result = evaluate(launchDir);
+        } finally {
+            listener.getLogger().flush();
+        }
+        if (result == null) {
+            result = IvyTriggerEvaluatorResult.failed();
+        }
+        return result.withLog(logBuffer.toString(LOG_CHARSET.name()), timings);
+    }
+
+    private IvyTriggerEvaluatorResult evaluate(File launchDir) throws IOException, InterruptedException {
+        try {
+            long lookupStart = System.nanoTime();
+            final File ivyFile = findFile(launchDir, ivyFileCandidates);
+            if (ivyFile == null) {
+                log.error("You have to provide a valid Ivy file.");
+                return null;
+            }
+            File settingsFile = findFile(launchDir, ivySettingsFileCandidates);
+            if (settingsFile == null) {
+                log.error("You have to provide a valid IvySettings file.");
+                return null;
+            }
+            timings.record(IvyTriggerPollTimings.PHASE_FILE_LOOKUP, lookupStart);
+            log.info(String.format("Resolved job Ivy file value: %s", ivyFile.getPath()));
+            log.info(String.format("Resolved job Ivy settings file value: %s", settingsFile.getPath()));
+
+            long propertiesStart = System.nanoTime();
+            Map<String, String> variables = getVariables(launchDir);
+            timings.record(IvyTriggerPollTimings.PHASE_PROPERTIES, propertiesStart);
+            String settingsContent = FileUtils.readFileToString(settingsFile);
+            String includedFiles = IncludedSettingsFiles.getSignature(settingsFile, settingsContent, variables);
+            final String inputsFingerprint = new ContentDigest()
+                    .add(FileUtils.readFileToString(ivyFile))
+                    .add(settingsContent)
+                    .add(includedFiles)
+                    .add(variables)
+                    .add(metadataOnly ? "metadata" : "download")
+                    .toHex();
+            String repositoryKey = IvyTriggerChangeFeed.computeKey(settingsFile, settingsContent, variables);
+
+            final File cacheDir = getAndInitCacheDir(launchDir);
+            //the polls sharing a resolve get the same result: everything the result depends on is part of the key
+            String resolutionKey = new ContentDigest()
+                    .add(inputsFingerprint)
+                    .add(ivyFile.getAbsolutePath())
+                    .add(settingsFile.getAbsolutePath())
+                    .add(skipResolveIfUnchanged ? "listings" : "")
+                    .add(watchRepository ? "directories" : "")
+                    .add(cacheSettings.isEvictionEnabled() ? cacheDir.getAbsolutePath() : "")
+                    .toHex();
+            long settingsStart = System.nanoTime();
+            final Ivy ivy = getIvyObject(launchDir, cacheDir, settingsFile, settingsContent, includedFiles, variables, log);
+            timings.record(IvyTriggerPollTimings.PHASE_SETTINGS, settingsStart);
+
+            //the cache maintenance doesn't evict anything while a poll uses the cache
+            Lock cacheUsageLock = IvyTriggerCacheMaintenance.get().getUsageLock(cacheDir);
+            cacheUsageLock.lock();
+            try {
+                //a cached instance is shared by the polls of the job, keep its logger for this poll only
+                Lock ivyUsageLock = IvyTriggerEngineCache.getUsageLock(ivy);
+                ivyUsageLock.lock();
+                try {
+                    ivy.getLoggerEngine().pushLogger(new IvyTriggerResolverLog(log, debug));
+                    try {
+                        long listingStart = System.nanoTime();
+                        boolean upToDate = isUpToDate(ivy, inputsFingerprint, repositoryKey);
+                        timings.record(IvyTriggerPollTimings.PHASE_REVISION_LISTING, listingStart);
+                        if (upToDate) {
+                            log.info("\nThe Ivy inputs and the revisions available for the dynamic dependencies have not changed. Skipping the resolve.");
+                            timings.setResolveSkipped(true);
+                            IvyTriggerChangeFeed.get().watch(repositoryKey, ivy, previousRevisionListings, listedAt);
+                            return IvyTriggerEvaluatorResult.upToDate(inputsFingerprint, previousRevisionListings, listedAt);
+                        }
+
+                        IvyTriggerEvaluatorResult result;
+                        if (resolveRequested || publishSeen) {
+                            //a resolve in progress may have started before the publish, it is not shared
+                            result = resolve(ivy, ivyFile, inputsFingerprint, cacheDir);
+                        } else {
+                            //jobs with the same inputs share the same resolve
+                            long resolveStart = System.nanoTime();
+                            final boolean[] resolvedByThisPoll = new boolean[1];
+                            result = IvyTriggerResolutionCoalescer.get().resolve(resolutionKey, new Callable<IvyTriggerEvaluatorResult>() {
+                                public IvyTriggerEvaluatorResult call() throws Exception {
+                                    resolvedByThisPoll[0] = true;
+                                    return resolve(ivy, ivyFile, inputsFingerprint, cacheDir);
+                                }
+                            }, log);
+                            if (!resolvedByThisPoll[0]) {
+                                timings.record(IvyTriggerPollTimings.PHASE_SHARED_RESOLVE, resolveStart);
+                            }
+                        }
+                        if (result != null && result.getRevisionListings() != null) {
+                            IvyTriggerChangeFeed.get().watch(repositoryKey, ivy, result.getRevisionListings(), result.getListedAt());
+                        }
+                        return result;
+                    } finally {
+                        ivy.getLoggerEngine().popLogger();
                     }
-                    log.error(errorMsgs.toString());
+                } finally {
+                    ivyUsageLock.unlock();
                 }
+            } finally {
+                cacheUsageLock.unlock();
             }
 
-            result = getMapDependencies(ivy, resolveReport, log);
-
         } catch (ParseException pe) {
             log.error("Parsing error: " + pe.getMessage());
             return null;
@@ -89,38 +271,286 @@ public class IvyTriggerEvaluator implements FilePath.FileCallable<Map<String, Iv
             log.error("XTrigger exception: " + xe.getMessage());
             return null;
         }
+    }
 
-        return result;
+    /**
+     * Gets the first candidate path of a file that exists on the node, in the lookup order of {@link FilePathFactory}
+     *
+     * @return the file or null if there is none
+     */
+    private File findFile(File launchDir, List<String> candidates) {
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        String candidate = null;
+        for (Iterator<String> it = candidates.iterator(); it.hasNext(); ) {
+            candidate = it.next();
+            File file = new File(candidate);
+            if (!file.isAbsolute()) {
+                file = new File(launchDir, candidate);
+            }
+            if (file.exists()) {
+                return file;
+            }
+        }
+        log.error(String.format("Can't find the file '%s'.", candidate));
+        return null;
     }
 
-    private Ivy getIvyObject(File launchDir, XTriggerLog log) throws XTriggerException {
+    private IvyTriggerEvaluatorResult resolve(Ivy ivy, File ivyFile, String inputsFingerprint, File cacheDir) throws ParseException, IOException, InterruptedException {
+        long resolveStart = System.nanoTime();
+        //Ivy reuses a dynamic revision resolved a few seconds ago, a publish would not be seen
+        ResolveOptions resolveOptions = new ResolveOptions().setRefresh(resolveRequested || publishSeen);
+        if (metadataOnly) {
+            log.info("\nResolving Ivy dependencies, without downloading the artifacts.");
+            resolveOptions.setDownload(false);
+        } else {
+            log.info("\nResolving Ivy dependencies.");
+        }
+        ResolveReport resolveReport = ivy.resolve(ivyFile.toURI().toURL(), resolveOptions);
+        timings.record(IvyTriggerPollTimings.PHASE_RESOLVE, resolveStart);
+        timings.addDownloadedBytes(resolveReport.getDownloadSize());
+        if (resolveReport.hasError()) {
+            List problems = resolveReport.getAllProblemMessages();
+            if (problems != null && !problems.isEmpty()) {
+                StringBuffer errorMsgs = new StringBuffer();
+                errorMsgs.append("Errors:\n");
+                for (Object problem : problems) {
+                    errorMsgs.append(problem);
+                    errorMsgs.append("\n");
+                }
+                log.error(errorMsgs.toString());
+            }
+        }
 
-        Map<String, String> variables = getVariables();
+        long artifactsStart = System.nanoTime();
+        Map<String, IvyDependencyValue> dependencies = getMapDependencies(ivy, resolveReport, log);
+        timings.record(IvyTriggerPollTimings.PHASE_ARTIFACTS, artifactsStart);
+        Map<String, String> revisionListings = null;
+        long listedAt = System.currentTimeMillis();
+        if (skipResolveIfUnchanged && !resolveReport.hasError()) {
+            long listingStart = System.nanoTime();
+            revisionListings = getRevisionListings(ivy, resolveReport);
+            timings.record(IvyTriggerPollTimings.PHASE_REVISION_LISTING, listingStart);
+        }
+        if (cacheSettings.isEvictionEnabled()) {
+            recordCacheAccesses(ivy, resolveReport, cacheDir);
+        }
+        List<String> repositoryDirectories = watchRepository ? getRepositoryDirectories(ivy, resolveReport) : null;
+        return IvyTriggerEvaluatorResult.resolved(dependencies, inputsFingerprint, revisionListings, listedAt, repositoryDirectories);
+    }
 
-        File tempSettings = null;
-        try {
+    /**
+     * Gets the directories where the resolved modules are published, in the file system repositories of the settings
+     */
+    private List<String> getRepositoryDirectories(Ivy ivy, ResolveReport resolveReport) {
+        Set<String> directories = new TreeSet<String>();
+        for (Object dependencyObject : resolveReport.getDependencies()) {
+            IvyNode dependencyNode = (IvyNode) dependencyObject;
+            ModuleRevisionId resolvedId = dependencyNode.getResolvedId();
+            List<FileSystemResolver> resolvers = new ArrayList<FileSystemResolver>();
+            ResolvedModuleRevision moduleRevision = dependencyNode.getModuleRevision();
+            if (moduleRevision != null) {
+                addFileSystemResolvers(moduleRevision.getResolver(), resolvers);
+                addFileSystemResolvers(moduleRevision.getArtifactResolver(), resolvers);
+            }
+            if (resolvers.isEmpty()) {
+                addFileSystemResolvers(ivy.getSettings().getResolver(resolvedId), resolvers);
+            }
+            for (FileSystemResolver resolver : resolvers) {
+                String organisation = resolver.isM2compatible()
+                        ? resolvedId.getOrganisation().replace('.', '/')
+                        : resolvedId.getOrganisation();
+                List<Object> patterns = new ArrayList<Object>(resolver.getIvyPatterns());
+                patterns.addAll(resolver.getArtifactPatterns());
+                for (Object pattern : patterns) {
+                    String directory = getModuleDirectory(String.valueOf(pattern), organisation, resolvedId.getName());
+                    if (directory != null) {
+                        directories.add(directory);
+                    }
+                }
+            }
+        }
+        return new ArrayList<String>(directories);
+    }
 
-            //------------ENV_VAR_
-            StringBuffer envVarsContent = new StringBuffer();
-            for (Map.Entry<String, String> entry : variables.entrySet()) {
-                envVarsContent.append(String.format("<property name=\"%s\" value=\"%s\"/>\n", entry.getKey(), entry.getValue()));
+    private void addFileSystemResolvers(DependencyResolver resolver, List<FileSystemResolver> resolvers) {
+        if (resolver instanceof FileSystemResolver) {
+            if (!resolvers.contains(resolver)) {
+                resolvers.add((FileSystemResolver) resolver);
+            }
+        } else if (resolver instanceof ChainResolver) {
+            for (Object chainedResolver : ((ChainResolver) resolver).getResolvers()) {
+                addFileSystemResolvers((DependencyResolver) chainedResolver, resolvers);
+            }
+        } else if (resolver instanceof DualResolver) {
+            addFileSystemResolvers(((DualResolver) resolver).getIvyResolver(), resolvers);
+            addFileSystemResolvers(((DualResolver) resolver).getArtifactResolver(), resolvers);
+        }
+    }
+
+    /**
+     * Gets the deepest directory of a pattern that depends on the organisation and the module only
+     *
+     * @return the absolute path of the directory, null if the pattern has no directory
+     */
+    static String getModuleDirectory(String pattern, String organisation, String module) {
+        String path = pattern
+                .replace("[organisation]", organisation)
+                .replace("[organization]", organisation)
+                .replace("[module]", module);
+        int tokenIndex = path.length();
+        for (char tokenStart : new char[]{'[', '('}) {
+            int index = path.indexOf(tokenStart);
+            if (index >= 0) {
+                tokenIndex = Math.min(tokenIndex, index);
+            }
+        }
+        String prefix = path.substring(0, tokenIndex);
+        int separatorIndex = Math.max(prefix.lastIndexOf('/'), prefix.lastIndexOf('\\'));
+        if (separatorIndex <= 0) {
+            return null;
+        }
+        return new File(prefix.substring(0, separatorIndex)).getAbsolutePath();
+    }
+
+    /**
+     * Records the cache files of the resolved module revisions, so that the cache maintenance evicts the unused ones
+     */
+    private void recordCacheAccesses(Ivy ivy, ResolveReport resolveReport, File cacheDir) {
+        RepositoryCacheManager repositoryCacheManager = ivy.getSettings().getDefaultRepositoryCacheManager();
+        if (!(repositoryCacheManager instanceof DefaultRepositoryCacheManager)) {
+            return;
+        }
+        DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) repositoryCacheManager;
+        IvyTriggerCacheMaintenance cacheMaintenance = IvyTriggerCacheMaintenance.get();
+        for (Object dependencyObject : resolveReport.getDependencies()) {
+            IvyNode dependencyNode = (IvyNode) dependencyObject;
+            try {
+                ModuleRevisionId moduleRevisionId = dependencyNode.getResolvedId();
+                List<File> files = new ArrayList<File>();
+                File ivyFile = cacheManager.getIvyFileInCache(moduleRevisionId);
+                files.add(ivyFile);
+                files.add(new File(ivyFile.getPath() + ".original"));
+                files.add(new File(cacheManager.getBasedir(), IvyPatternHelper.substitute(cacheManager.getDataFilePattern(), moduleRevisionId)));
+                Artifact[] artifacts = dependencyNode.getAllArtifacts();
+                if (artifacts != null) {
+                    for (Artifact artifact : artifacts) {
+                        files.add(cacheManager.getArchiveFileInCache(artifact));
+                    }
+                }
+                cacheMaintenance.recordAccess(cacheDir, cacheSettings, moduleRevisionId.toString(), files);
+            } catch (RuntimeException re) {
+                log.error(String.format("Can't record the cache access for dependency %s", dependencyNode));
             }
+        }
+    }
+
+    /**
+     * The resolve can be skipped when the inputs are the same as at the previous poll
+     * and no new revision was published for the modules resolved from a dynamic revision.
+     * Fixed revisions are never downloaded again by Ivy, so resolving them again cannot show a change.
+     * The revisions listed by the {@link IvyTriggerChangeFeed} for the repository are used when they are recent enough:
+     * they may not show a publish yet, a poll started by a publish always resolves.
+     */
+    private boolean isUpToDate(Ivy ivy, String inputsFingerprint, String repositoryKey) {
+        if (resolveRequested || !skipResolveIfUnchanged || previousInputsFingerprint == null || previousRevisionListings == null) {
+            return false;
+        }
+
+        if (!previousInputsFingerprint.equals(inputsFingerprint)) {
+            log.info("The Ivy inputs have changed since the previous poll.");
+            return false;
+        }
 
-            //-----------Inject properties files
-            String settingsContent = FileUtils.readFileToString(new File(ivySettingsFilePath.getRemote()));
-            StringBuffer stringBuffer = new StringBuffer(settingsContent);
-            int index = stringBuffer.indexOf("<ivysettings>");
-            stringBuffer.insert(index + "<ivysettings>".length() + 1, envVarsContent.toString());
-            tempSettings = File.createTempFile("file", ".tmp");
-            FileOutputStream fileOutputStream = new FileOutputStream(tempSettings);
-            fileOutputStream.write(stringBuffer.toString().getBytes());
+        //a listing of the feed not newer than the previous ones doesn't show the publishes since, the module is listed again
+        IvyTriggerChangeFeed changeFeed = IvyTriggerChangeFeed.get();
+        listedAt = System.currentTimeMillis();
+        for (Map.Entry<String, String> previousListing : previousRevisionListings.entrySet()) {
+            String moduleId = previousListing.getKey();
+            String listing;
+            IvyTriggerChangeFeed.Listing feedListing = changeFeed.getListing(repositoryKey, moduleId, previousListedAt);
+            if (feedListing == null) {
+                listing = IvyTriggerChangeFeed.getRevisionListing(ivy, moduleId);
+            } else {
+                listing = feedListing.getRevisions();
+                listedAt = Math.min(listedAt, feedListing.getListedAt());
+            }
+            if (!previousListing.getValue().equals(listing)) {
+                log.info(String.format("The revisions available for %s have changed since the previous poll.", moduleId));
+                publishSeen = true;
+                return false;
+            }
+        }
+
+        return true;
+    }
 
+    /**
+     * Gets the revisions available in the repository for each module resolved from a dynamic revision
+     *
+     * @return the listings by module id, or null if a dependency is changing
+     */
+    private Map<String, String> getRevisionListings(Ivy ivy, ResolveReport resolveReport) {
+        VersionMatcher versionMatcher = ivy.getSettings().getVersionMatcher();
+        Map<String, String> listings = new TreeMap<String, String>();
+        for (Object dependencyObject : resolveReport.getDependencies()) {
+            IvyNode dependencyNode = (IvyNode) dependencyObject;
+            for (IvyNodeCallers.Caller caller : dependencyNode.getAllCallers()) {
+                DependencyDescriptor dependencyDescriptor = caller.getDependencyDescriptor();
+                if (dependencyDescriptor != null && dependencyDescriptor.isChanging()) {
+                    //a changing revision can be published again without any metadata change
+                    return null;
+                }
+            }
+            ModuleRevisionId requestedId = dependencyNode.getId();
+            if (versionMatcher.isDynamic(requestedId)) {
+                ModuleId moduleId = requestedId.getModuleId();
+                listings.put(moduleId.toString(), IvyTriggerChangeFeed.getRevisionListing(ivy, moduleId.toString()));
+            }
+        }
+        return listings;
+    }
+
+    private Ivy getIvyObject(File launchDir, File cacheDir, File settingsFile, String settingsContent, String includedFiles, Map<String, String> variables, XTriggerLog log) throws XTriggerException {
+
+        File resolutionCacheDir = getAndInitResolutionCacheDir(launchDir, cacheDir);
+
+        IvyTriggerEngineCache engineCache = IvyTriggerEngineCache.get();
+        String engineKey = IvyTriggerEngineCache.computeKey(settingsFile, settingsContent, includedFiles, variables, cacheDir, resolutionCacheDir);
+        Ivy ivy = engineCache.getIvy(namespace, engineKey);
+        if (ivy != null) {
+            log.info("Reusing the Ivy settings loaded at a previous poll.");
+            return ivy;
+        }
+
+        ivy = newIvyObject(settingsFile, variables, cacheDir, resolutionCacheDir);
+        engineCache.putIvy(namespace, engineKey, ivy);
+        return ivy;
+    }
+
+    Ivy newIvyObject(File settingsFile, Map<String, String> variables, File cacheDir, File resolutionCacheDir) throws XTriggerException {
+
+        try {
+
+            //The variables are set before loading the settings file, as properties declared at the top of the file would be
             IvySettings ivySettings = new IvySettings();
-            ivySettings.load(tempSettings);
-            ivySettings.setDefaultCache(getAndInitCacheDir(launchDir));
+            for (Map.Entry<String, String> entry : variables.entrySet()) {
+                ivySettings.setVariable(entry.getKey(), entry.getValue());
+            }
+            ivySettings.load(settingsFile);
+            ivySettings.setDefaultCache(cacheDir);
+            if (cacheSettings.isShared()) {
+                //the resolution cache is keyed by the module of the Ivy file, which different jobs may share
+                ivySettings.setDefaultResolutionCacheBasedir(resolutionCacheDir.getAbsolutePath());
+                //the polls of the other jobs of the node use the same repository cache
+                RepositoryCacheManager cacheManager = ivySettings.getDefaultRepositoryCacheManager();
+                if (cacheManager instanceof DefaultRepositoryCacheManager) {
+                    ((DefaultRepositoryCacheManager) cacheManager).setLockStrategy(ivySettings.getLockStrategy("artifact-lock"));
+                }
+            }
 
             Ivy ivy = Ivy.newInstance(ivySettings);
-            ivy.getLoggerEngine().pushLogger(new IvyTriggerResolverLog(log, debug));
             for (Map.Entry<String, String> entry : variables.entrySet()) {
                 ivy.setVariable(entry.getKey(), entry.getValue());
             }
@@ -131,105 +561,231 @@ public class IvyTriggerEvaluator implements FilePath.FileCallable<Map<String, Iv
             throw new XTriggerException(pe);
         } catch (IOException ioe) {
             throw new XTriggerException(ioe);
-        } finally {
-            if (tempSettings != null) {
-                tempSettings.delete();
-            }
         }
 
     }
 
 
-    private Map<String, String> getVariables() throws XTriggerException {
+    private Map<String, String> getVariables(File launchDir) throws XTriggerException {
         //we want variables to be sorted
-        final Map<String, String> variables = new TreeMap<String, String>();
+        Map<String, String> variables = new TreeMap<String, String>();
         try {
 
             //Inject variables from dependencies properties and envVars
             if (envVars != null) {
                 variables.putAll(envVars);
             }
-
-            if (propertiesFilePath != null) {
-
-                propertiesFilePath.act(new FilePath.FileCallable<Void>() {
-                    public Void invoke(File f, VirtualChannel channel) throws IOException, InterruptedException {
-                        Properties properties = new Properties();
-                        FileReader fileReader = new FileReader(propertiesFilePath.getRemote());
-                        properties.load(fileReader);
-                        fileReader.close();
-                        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
-                            variables.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
-                        }
-                        return null;
+            if (propertiesFileCandidates != null) {
+                List<File> propertiesFiles = new ArrayList<File>();
+                for (List<String> candidates : propertiesFileCandidates) {
+                    File propertiesFile = findFile(launchDir, candidates);
+                    if (propertiesFile != null) {
+                        propertiesFiles.add(propertiesFile);
                     }
                 }
-                );
-            }
-
-            if (propertiesContent != null) {
-                Properties properties = new Properties();
-                StringReader stringReader = new StringReader(propertiesContent);
-                properties.load(stringReader);
-                stringReader.close();
-                for (Map.Entry<Object, Object> entry : properties.entrySet()) {
-                    variables.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
-                }
+                loadProperties(new PropertiesFileContentExtractor().extractPropertiesFileContents(propertiesFiles, log), variables);
             }
+            loadProperties(propertiesContent, variables);
 
         } catch (IOException ioe) {
             throw new XTriggerException(ioe);
-        } catch (InterruptedException ie) {
-            throw new XTriggerException(ie);
         }
 
         return variables;
     }
 
+    private void loadProperties(String content, Map<String, String> variables) throws IOException {
+        if (content == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        StringReader stringReader = new StringReader(content);
+        properties.load(stringReader);
+        stringReader.close();
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            variables.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+        }
+    }
+
 
     private File getAndInitCacheDir(File launchDir) {
-        File cacheDir = new File(launchDir, "ivy-trigger-cache/" + namespace);
+        File cacheDir = cacheSettings.isShared()
+                ? new File(launchDir, "ivy-trigger-cache-shared/repository")
+                : new File(launchDir, "ivy-trigger-cache/" + namespace);
         cacheDir.mkdirs();
         return cacheDir;
     }
 
+    private File getAndInitResolutionCacheDir(File launchDir, File cacheDir) {
+        if (!cacheSettings.isShared()) {
+            //Ivy defaults to the repository cache directory
+            return cacheDir;
+        }
+        File resolutionCacheDir = new File(launchDir, "ivy-trigger-cache-shared/resolution/" + namespace);
+        resolutionCacheDir.mkdirs();
+        return resolutionCacheDir;
+    }
+
 
-    private Map<String, IvyDependencyValue> getMapDependencies(Ivy ivy, ResolveReport resolveReport, XTriggerLog log) {
+    private Map<String, IvyDependencyValue> getMapDependencies(final Ivy ivy, ResolveReport resolveReport, XTriggerLog log) throws InterruptedException {
 
         List dependencies = resolveReport.getDependencies();
 
-        Map<String, IvyDependencyValue> result = new HashMap<String, IvyDependencyValue>();
+        //one cache manager for all the artifacts of the resolve, the one of the settings knows their paths in the cache
+        IvySettings settings = ivy.getSettings();
+        RepositoryCacheManager settingsCacheManager = settings.getDefaultRepositoryCacheManager();
+        final DefaultRepositoryCacheManager repositoryCacheManager = (settingsCacheManager instanceof DefaultRepositoryCacheManager)
+                ? (DefaultRepositoryCacheManager) settingsCacheManager
+                : new DefaultRepositoryCacheManager("repo", settings, settings.getDefaultRepositoryCacheBasedir());
+
+        //Queue the reads of all the artifacts, they run in parallel
+        List<IvyNode> dependencyNodes = new ArrayList<IvyNode>(dependencies.size());
+        List<Artifact[]> dependencyArtifacts = new ArrayList<Artifact[]>(dependencies.size());
+        List<Callable<IvyArtifactValue>> reads = new ArrayList<Callable<IvyArtifactValue>>();
         for (Object dependencyObject : dependencies) {
+            final IvyNode dependencyNode = (IvyNode) dependencyObject;
+            Artifact[] artifacts;
             try {
-                IvyNode dependencyNode = (IvyNode) dependencyObject;
-                ModuleRevisionId moduleRevisionId = dependencyNode.getResolvedId();
-                String moduleRevision = moduleRevisionId.getRevision();
-                Artifact[] artifacts = dependencyNode.getAllArtifacts();
-                List<IvyArtifactValue> ivyArtifactValues = new ArrayList<IvyArtifactValue>();
-                if (artifacts != null) {
-                    for (Artifact artifact : artifacts) {
-                        IvySettings settings = ivy.getSettings();
-                        File cacheDirFile = settings.getDefaultRepositoryCacheBasedir();
-                        RepositoryCacheManager repositoryCacheManager = new DefaultRepositoryCacheManager("repo", settings, cacheDirFile);
-                        ArtifactOrigin artifactOrigin = repositoryCacheManager.getSavedArtifactOrigin(artifact);
-                        if (artifactOrigin != null && artifactOrigin.isLocal()) {
-                            String location = artifactOrigin.getLocation();
-                            File artifactFile = new File(location);
-                            if (artifactFile != null) {
-                                long lastModificationDate = artifactFile.lastModified();
-                                ivyArtifactValues.add(new IvyArtifactValue(artifact.getName(), artifact.getExt(), lastModificationDate));
-                            }
-                        }
-                    }
-                }
-                result.put(dependencyNode.getId().toString(), new IvyDependencyValue(moduleRevision, ivyArtifactValues));
+                artifacts = dependencyNode.getAllArtifacts();
             } catch (Throwable e) {
-                log.error(String.format("Can't retrieve artifacts for dependency" + (IvyNode) dependencyObject));
+                log.error(String.format("Can't retrieve artifacts for dependency" + dependencyNode));
                 continue;
             }
+            if (artifacts == null) {
+                artifacts = new Artifact[0];
+            }
+            dependencyNodes.add(dependencyNode);
+            dependencyArtifacts.add(artifacts);
+            for (final Artifact artifact : artifacts) {
+                reads.add(new Callable<IvyArtifactValue>() {
+                    public IvyArtifactValue call() throws Exception {
+                        return metadataOnly
+                                ? getPublishedArtifactValue(ivy, dependencyNode, artifact)
+                                : getCachedArtifactValue(repositoryCacheManager, artifact);
+                    }
+                });
+            }
+        }
+
+        List<Future<IvyArtifactValue>> artifactValues = IvyArtifactMetadataCollector.get().readAll(ivy, reads);
+
+        //Gather the values in the order of the reads
+        Map<String, IvyDependencyValue> result = new HashMap<String, IvyDependencyValue>();
+        int readIndex = 0;
+        for (int i = 0; i < dependencyNodes.size(); i++) {
+            IvyNode dependencyNode = dependencyNodes.get(i);
+            Artifact[] artifacts = dependencyArtifacts.get(i);
+            //a failed read loses its artifact only, the dependency is kept with the artifacts that were read
+            List<IvyArtifactValue> ivyArtifactValues = new ArrayList<IvyArtifactValue>(artifacts.length);
+            for (int j = 0; j < artifacts.length; j++) {
+                try {
+                    IvyArtifactValue ivyArtifactValue = artifactValues.get(readIndex + j).get();
+                    if (ivyArtifactValue != null) {
+                        ivyArtifactValues.add(ivyArtifactValue);
+                    }
+                } catch (ExecutionException e) {
+                    log.error(String.format("Can't retrieve the artifact %s of the dependency %s: %s", artifacts[j], dependencyNode, e.getCause()));
+                }
+            }
+            readIndex += artifacts.length;
+            String moduleRevision = dependencyNode.getResolvedId().getRevision();
+            result.put(dependencyNode.getId().toString(), new IvyDependencyValue(moduleRevision, ivyArtifactValues));
         }
 
         return result;
 
     }
+
+    /**
+     * Reads the date of the artifact from the Ivy cache: the date of the repository file for an artifact used in place,
+     * else the date of the downloaded file, which Ivy sets to the publication date.
+     * The artifacts of all the origins are recorded, as in metadata only mode:
+     * switching a job from one mode to the other doesn't show the artifacts as removed.
+     */
+    private IvyArtifactValue getCachedArtifactValue(DefaultRepositoryCacheManager repositoryCacheManager, Artifact artifact) {
+        ArtifactOrigin artifactOrigin = repositoryCacheManager.getSavedArtifactOrigin(artifact);
+        if (artifactOrigin == null || ArtifactOrigin.isUnknown(artifactOrigin)) {
+            return null;
+        }
+        File artifactFile;
+        if (artifactOrigin.isLocal()) {
+            artifactFile = new File(artifactOrigin.getLocation());
+        } else {
+            artifactFile = repositoryCacheManager.getArchiveFileInCache(artifact, artifactOrigin);
+            if (!artifactFile.exists()) {
+                return null;
+            }
+        }
+        return new IvyArtifactValue(artifact.getName(), artifact.getExt(), artifactFile.lastModified());
+    }
+
+    /**
+     * Reads the publication date and the size of the artifact from the repository, without downloading it.
+     * Ivy keeps the publication date on the files it downloads, so the dates are the same as the ones read from the cache.
+     * When the repository gives no date, the SHA-1 published next to the artifact is used instead.
+     */
+    private IvyArtifactValue getPublishedArtifactValue(Ivy ivy, IvyNode dependencyNode, Artifact artifact) throws IOException {
+        DependencyResolver resolver = null;
+        ResolvedModuleRevision moduleRevision = dependencyNode.getModuleRevision();
+        if (moduleRevision != null) {
+            resolver = moduleRevision.getArtifactResolver();
+        }
+        if (resolver == null) {
+            resolver = ivy.getSettings().getResolver(dependencyNode.getResolvedId());
+        }
+        if (resolver == null) {
+            return null;
+        }
+
+        ArtifactOrigin artifactOrigin = resolver.locate(artifact);
+        if (ArtifactOrigin.isUnknown(artifactOrigin)) {
+            return null;
+        }
+
+        String location = artifactOrigin.getLocation();
+        long lastModificationDate;
+        long size;
+        if (artifactOrigin.isLocal()) {
+            File artifactFile = new File(location);
+            if (!artifactFile.exists()) {
+                return null;
+            }
+            lastModificationDate = artifactFile.lastModified();
+            size = artifactFile.length();
+        } else {
+            URLHandler.URLInfo urlInfo = URLHandlerRegistry.getDefault().getURLInfo(new URL(location));
+            if (!urlInfo.isReachable()) {
+                return null;
+            }
+            lastModificationDate = urlInfo.getLastModified();
+            size = urlInfo.getContentLength();
+        }
+
+        String checksum = String.valueOf(size);
+        if (lastModificationDate <= 0) {
+            String sha1 = readSha1(location, artifactOrigin.isLocal());
+            if (sha1 != null) {
+                checksum = checksum + "/" + sha1;
+            }
+        }
+        return new IvyArtifactValue(artifact.getName(), artifact.getExt(), lastModificationDate, checksum);
+    }
+
+    private String readSha1(String location, boolean local) {
+        try {
+            InputStream inputStream = local
+                    ? new FileInputStream(location + ".sha1")
+                    : URLHandlerRegistry.getDefault().openStream(new URL(location + ".sha1"));
+            try {
+                //the file may be followed by the artifact file name
+                String content = IOUtils.toString(inputStream).trim();
+                int index = content.indexOf(' ');
+                return (index < 0) ? content : content.substring(0, index);
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException ioe) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,120 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of an {@link IvyTriggerEvaluator} call, sent back from the polling node.
+ * <p/>
+ * Besides the resolved dependencies, I carry what the next poll needs to decide
+ * whether the resolve can be skipped:
+ * <ul>
+ * <li>the fingerprint of the inputs (Ivy file, settings file and the files it includes, variables)</li>
+ * <li>the revision listing of every module resolved from a dynamic revision,
+ * or null when the graph contains a changing dependency and the resolve can never be skipped</li>
+ * <li>the time of these listings, on the clock of the polling node</li>
+ * </ul>
+ * When the trigger watches its repository, I carry the file system repository directories of the resolved modules.
+ * I also carry the log written on the polling node and the timings of the phases run there.
+ */
+public class IvyTriggerEvaluatorResult implements Serializable {
+
+    private final Map<String, IvyDependencyValue> dependencies;
+
+    private final String inputsFingerprint;
+
+    private final Map<String, String> revisionListings;
+
+    private final long listedAt;
+
+    private final boolean upToDate;
+
+    private final List<String> repositoryDirectories;
+
+    private final String log;
+
+    private final IvyTriggerPollTimings timings;
+
+    private IvyTriggerEvaluatorResult(Map<String, IvyDependencyValue> dependencies,
+                                      String inputsFingerprint,
+                                      Map<String, String> revisionListings,
+                                      long listedAt,
+                                      boolean upToDate,
+                                      List<String> repositoryDirectories,
+                                      String log,
+                                      IvyTriggerPollTimings timings) {
+        this.dependencies = dependencies;
+        this.inputsFingerprint = inputsFingerprint;
+        this.revisionListings = revisionListings;
+        this.listedAt = listedAt;
+        this.upToDate = upToDate;
+        this.repositoryDirectories = repositoryDirectories;
+        this.log = log;
+        this.timings = timings;
+    }
+
+    public static IvyTriggerEvaluatorResult resolved(Map<String, IvyDependencyValue> dependencies,
+                                                     String inputsFingerprint,
+                                                     Map<String, String> revisionListings,
+                                                     long listedAt,
+                                                     List<String> repositoryDirectories) {
+        return new IvyTriggerEvaluatorResult(dependencies, inputsFingerprint, revisionListings, listedAt, false, repositoryDirectories, null, null);
+    }
+
+    /**
+     * The resolve was skipped: the dependencies of the previous poll are still valid.
+     */
+    public static IvyTriggerEvaluatorResult upToDate(String inputsFingerprint, Map<String, String> revisionListings, long listedAt) {
+        return new IvyTriggerEvaluatorResult(null, inputsFingerprint, revisionListings, listedAt, true, null, null, null);
+    }
+
+    /**
+     * The dependencies could not be resolved, the reason is in the log.
+     */
+    public static IvyTriggerEvaluatorResult failed() {
+        return new IvyTriggerEvaluatorResult(null, null, null, 0, false, null, null, null);
+    }
+
+    /**
+     * @return a copy of this result with the log and the timings of a poll; a result may be shared by the polls of several jobs
+     */
+    public IvyTriggerEvaluatorResult withLog(String log, IvyTriggerPollTimings timings) {
+        return new IvyTriggerEvaluatorResult(dependencies, inputsFingerprint, revisionListings, listedAt, upToDate, repositoryDirectories, log, timings);
+    }
+
+    public Map<String, IvyDependencyValue> getDependencies() {
+        return dependencies;
+    }
+
+    public String getInputsFingerprint() {
+        return inputsFingerprint;
+    }
+
+    public Map<String, String> getRevisionListings() {
+        return revisionListings;
+    }
+
+    public long getListedAt() {
+        return listedAt;
+    }
+
+    public boolean isUpToDate() {
+        return upToDate;
+    }
+
+    /**
+     * @return the directories to watch, null if the trigger doesn't watch its repository or the resolve was skipped
+     */
+    public List<String> getRepositoryDirectories() {
+        return repositoryDirectories;
+    }
+
+    public String getLog() {
+        return log;
+    }
+
+    public IvyTriggerPollTimings getTimings() {
+        return timings;
+    }
+}
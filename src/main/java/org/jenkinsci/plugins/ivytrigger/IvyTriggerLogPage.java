@@ -0,0 +1,154 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import hudson.console.AnnotatedLargeText;
+import org.apache.commons.jelly.XMLOutput;
+import org.kohsuke.stapler.framework.io.ByteBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+
+/**
+ * A page of a poll log, for the IvyTrigger Log page.
+ * <p/>
+ * A page holds about {@link #PAGE_SIZE} bytes of the log and starts at the beginning of a line.
+ * Without a position, the page is the end of the log; the previous and next pages are reached by their positions,
+ * so that only one page of the log is read for each request.
+ * A page is rendered with the console annotations of its lines, as the whole log was.
+ */
+public class IvyTriggerLogPage {
+
+    static final int PAGE_SIZE = 64 * 1024;
+
+    private final File logFile;
+
+    private final IvyTriggerAction action;
+
+    private final int poll;
+
+    private final long length;
+
+    private final long start;
+
+    private final long end;
+
+    private IvyTriggerLogPage(File logFile, IvyTriggerAction action, int poll, long length, long start, long end) {
+        this.logFile = logFile;
+        this.action = action;
+        this.poll = poll;
+        this.length = length;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Gets a page of the log
+     *
+     * @param action         the action showing the log, the context of its console annotations
+     * @param poll           the index of the poll, 0 for the last one
+     * @param startParameter the position of the page, null for a page ending at the given end
+     * @param endParameter   the end of the page, null for the end of the log
+     * @return the page, null if the log is empty
+     */
+    public static IvyTriggerLogPage getPage(File logFile, IvyTriggerAction action, int poll, String startParameter, String endParameter) throws IOException {
+        //the size tells whether there is a log, the file is not read
+        long length = logFile.length();
+        if (length == 0) {
+            return null;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(logFile, "r");
+        try {
+            long start;
+            long end;
+            if (startParameter != null) {
+                start = getLineStart(file, length, parsePosition(startParameter, length));
+                end = Math.min(getLineStart(file, length, start + PAGE_SIZE), start + 2 * PAGE_SIZE);
+            } else {
+                end = (endParameter == null) ? length : getLineStart(file, length, parsePosition(endParameter, length));
+                start = getLineStart(file, length, end - PAGE_SIZE);
+                if (start == end && end > 0) {
+                    //a line longer than a page
+                    start = Math.max(0, end - PAGE_SIZE);
+                }
+            }
+            return new IvyTriggerLogPage(logFile, action, poll, length, start, end);
+        } finally {
+            file.close();
+        }
+    }
+
+    private static long parsePosition(String position, long length) {
+        try {
+            return Math.max(0, Math.min(length, Long.parseLong(position)));
+        } catch (NumberFormatException nfe) {
+            return length;
+        }
+    }
+
+    /**
+     * @return the start of the first line at or after the position
+     */
+    private static long getLineStart(RandomAccessFile file, long length, long position) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+        if (position >= length) {
+            return length;
+        }
+        file.seek(position - 1);
+        int b;
+        while ((b = file.read()) != -1) {
+            if (b == '\n') {
+                return file.getFilePointer();
+            }
+        }
+        return length;
+    }
+
+    public int getPoll() {
+        return poll;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public boolean isFirstPage() {
+        return start == 0;
+    }
+
+    public boolean isLastPage() {
+        return end >= length;
+    }
+
+    @SuppressWarnings("unused")
+    public void writeTo(XMLOutput out) throws IOException {
+        byte[] content = new byte[(int) (end - start)];
+        int read = 0;
+        RandomAccessFile file = new RandomAccessFile(logFile, "r");
+        try {
+            file.seek(start);
+            //the log may have been truncated by a new poll meanwhile
+            int count;
+            while (read < content.length && (count = file.read(content, read, content.length - read)) != -1) {
+                read += count;
+            }
+        } finally {
+            file.close();
+        }
+        //a page starts and ends on line starts, the annotations of its lines are complete
+        ByteBuffer page = new ByteBuffer();
+        page.write(content, 0, read);
+        new AnnotatedLargeText<IvyTriggerAction>(page, Charset.defaultCharset(), true, action).writeHtmlTo(0, out.asWriter());
+    }
+}
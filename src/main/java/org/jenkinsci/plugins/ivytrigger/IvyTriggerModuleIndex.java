@@ -0,0 +1,158 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * I index the triggers of the Jenkins instance by the modules they depend on, so that a change of a module
+ * can be given to exactly the jobs depending on it.
+ * <p/>
+ * A trigger is indexed by the modules (organisation and name, without revision) of the last context it recorded:
+ * every context recorded by the trigger updates its entries with the modules added and removed since its previous context.
+ */
+public class IvyTriggerModuleIndex {
+
+    private static final IvyTriggerModuleIndex INSTANCE = new IvyTriggerModuleIndex();
+
+    private final Map<String, Set<IvyTrigger>> triggersByModule = new HashMap<String, Set<IvyTrigger>>();
+
+    private final Map<IvyTrigger, Entry> entries = new HashMap<IvyTrigger, Entry>();
+
+    IvyTriggerModuleIndex() {
+    }
+
+    public static IvyTriggerModuleIndex get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Indexes the trigger by the modules of the context it recorded
+     *
+     * @param context the context, null or without dependencies to keep the modules of the previous context
+     */
+    public synchronized void update(IvyTrigger trigger, IvyTriggerContext context) {
+        if (context == null || context.getDependencies() == null) {
+            return;
+        }
+        Entry entry = entries.get(trigger);
+        if (entry != null && entry.context == context) {
+            //the context of the previous poll was reused
+            return;
+        }
+
+        Set<String> modules = new HashSet<String>();
+        for (String dependencyId : context.getDependencies().keySet()) {
+            modules.add(getModuleId(dependencyId));
+        }
+        Set<String> previousModules = (entry == null) ? Collections.<String>emptySet() : entry.modules;
+        for (String previousModule : previousModules) {
+            if (!modules.contains(previousModule)) {
+                removeTrigger(previousModule, trigger);
+            }
+        }
+        for (String module : modules) {
+            if (!previousModules.contains(module)) {
+                Set<IvyTrigger> triggers = triggersByModule.get(module);
+                if (triggers == null) {
+                    triggers = new LinkedHashSet<IvyTrigger>();
+                    triggersByModule.put(module, triggers);
+                }
+                triggers.add(trigger);
+            }
+        }
+        entries.put(trigger, new Entry(context, modules));
+    }
+
+    /**
+     * Removes a stopped trigger
+     */
+    public synchronized void remove(IvyTrigger trigger) {
+        Entry entry = entries.remove(trigger);
+        if (entry == null) {
+            return;
+        }
+        for (String module : entry.modules) {
+            removeTrigger(module, trigger);
+        }
+    }
+
+    private void removeTrigger(String module, IvyTrigger trigger) {
+        Set<IvyTrigger> triggers = triggersByModule.get(module);
+        if (triggers != null) {
+            triggers.remove(trigger);
+            if (triggers.isEmpty()) {
+                triggersByModule.remove(module);
+            }
+        }
+    }
+
+    /**
+     * @param moduleId the organisation and the name of the module, as {@code org#name}
+     * @return the triggers depending on the module
+     */
+    public synchronized Set<IvyTrigger> getTriggers(String moduleId) {
+        Set<IvyTrigger> triggers = triggersByModule.get(moduleId);
+        return (triggers == null) ? Collections.<IvyTrigger>emptySet() : new LinkedHashSet<IvyTrigger>(triggers);
+    }
+
+    /**
+     * @param coordinates the coordinates of modules, see {@link #parseModuleId(String)}
+     * @return the triggers depending on at least one of the modules
+     */
+    public synchronized Set<IvyTrigger> getTriggers(Collection<String> coordinates) {
+        Set<IvyTrigger> result = new LinkedHashSet<IvyTrigger>();
+        for (String coordinate : coordinates) {
+            Set<IvyTrigger> triggers = triggersByModule.get(parseModuleId(coordinate));
+            if (triggers != null) {
+                result.addAll(triggers);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the modules at least one trigger depends on
+     */
+    public synchronized Set<String> getModules() {
+        return new HashSet<String>(triggersByModule.keySet());
+    }
+
+    /**
+     * @return the module id of a dependency id of a context: {@code org#name;revision} gives {@code org#name}
+     */
+    static String getModuleId(String dependencyId) {
+        return IvyDependencyDiff.getDependencyName(dependencyId);
+    }
+
+    /**
+     * Gets the module id of the coordinates of a module, given in the Ivy notation ({@code org#name;revision})
+     * or separated by colons ({@code org:name:revision}); the revision is optional
+     */
+    static String parseModuleId(String coordinate) {
+        String trimmed = coordinate.trim();
+        if (trimmed.indexOf('#') < 0) {
+            String[] parts = trimmed.split(":");
+            if (parts.length >= 2) {
+                return parts[0] + "#" + parts[1];
+            }
+        }
+        return getModuleId(trimmed);
+    }
+
+    private static class Entry {
+
+        private final IvyTriggerContext context;
+
+        private final Set<String> modules;
+
+        private Entry(IvyTriggerContext context, Set<String> modules) {
+            this.context = context;
+            this.modules = modules;
+        }
+    }
+}
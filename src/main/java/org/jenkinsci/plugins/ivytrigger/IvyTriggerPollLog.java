@@ -0,0 +1,62 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+
+/**
+ * I write the poll log with two levels:
+ * <ul>
+ * <li>the summary, always written</li>
+ * <li>the details (one line per dependency or artifact), written in debug mode only</li>
+ * </ul>
+ * The messages are formatted only when they are written, so that a poll without debug and without changes
+ * doesn't build a message per dependency. Loops building details should check {@link #isDetailEnabled()} first.
+ */
+public class IvyTriggerPollLog {
+
+    private final XTriggerLog log;
+
+    private final boolean detailEnabled;
+
+    public IvyTriggerPollLog(XTriggerLog log, boolean debug) {
+        this.log = log;
+        this.detailEnabled = debug;
+    }
+
+    public boolean isDetailEnabled() {
+        return detailEnabled;
+    }
+
+    public void summary(String message) {
+        log.info(message);
+    }
+
+    public void summary(String pattern, Object arg) {
+        log.info(String.format(pattern, arg));
+    }
+
+    public void summary(String pattern, Object arg1, Object arg2) {
+        log.info(String.format(pattern, arg1, arg2));
+    }
+
+    public void detail(String message) {
+        if (detailEnabled) {
+            log.info(message);
+        }
+    }
+
+    public void detail(String pattern, Object arg) {
+        if (detailEnabled) {
+            log.info(String.format(pattern, arg));
+        }
+    }
+
+    public void detail(String pattern, Object arg1, Object arg2) {
+        if (detailEnabled) {
+            log.info(String.format(pattern, arg1, arg2));
+        }
+    }
+
+    public void error(String message) {
+        log.error(message);
+    }
+}
@@ -0,0 +1,204 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * I record the duration of the phases of a poll and what the poll resolved.
+ * <p/>
+ * The phases run on the polling node are recorded by the {@link IvyTriggerEvaluator} and sent back with its result,
+ * then added to the phases run on the master.
+ * A phase recorded several times accumulates its durations. I am not thread safe, a poll records its phases in turn.
+ */
+@ExportedBean(defaultVisibility = 2)
+public class IvyTriggerPollTimings implements Serializable {
+
+    public static final String PHASE_POLLING_SLOT = "Polling slot wait";
+
+    public static final String PHASE_ENV_VARS = "Environment variables";
+
+    public static final String PHASE_FILE_CANDIDATES = "File candidates";
+
+    public static final String PHASE_FILE_LOOKUP = "File lookup";
+
+    public static final String PHASE_PROPERTIES = "Properties extraction";
+
+    public static final String PHASE_SETTINGS = "Ivy settings load";
+
+    public static final String PHASE_REVISION_LISTING = "Revision listing";
+
+    public static final String PHASE_RESOLVE = "Ivy resolve";
+
+    public static final String PHASE_SHARED_RESOLVE = "Shared resolve wait";
+
+    public static final String PHASE_ARTIFACTS = "Artifact metadata";
+
+    /**
+     * The whole call to the polling node, including the phases run there
+     */
+    public static final String PHASE_NODE_CALL = "Polling node call";
+
+    public static final String PHASE_DIFF = "Diff";
+
+    public static final String PHASE_PERSISTENCE = "Context serialization";
+
+    private final long timestamp;
+
+    private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+    private long duration;
+
+    private int dependencyCount = -1;
+
+    private int artifactCount = -1;
+
+    private long downloadedBytes;
+
+    private boolean resolveSkipped;
+
+    public IvyTriggerPollTimings() {
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Records the time elapsed in a phase
+     *
+     * @param phase      the name of the phase
+     * @param startNanos the {@link System#nanoTime()} at the start of the phase
+     */
+    public void record(String phase, long startNanos) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        Long previous = phases.get(phase);
+        phases.put(phase, (previous == null) ? elapsed : previous + elapsed);
+    }
+
+    /**
+     * Adds the phases and the counts recorded on the polling node
+     */
+    public void addAll(IvyTriggerPollTimings nodeTimings) {
+        if (nodeTimings == null) {
+            return;
+        }
+        for (Map.Entry<String, Long> phase : nodeTimings.phases.entrySet()) {
+            Long previous = phases.get(phase.getKey());
+            phases.put(phase.getKey(), (previous == null) ? phase.getValue() : previous + phase.getValue());
+        }
+        downloadedBytes += nodeTimings.downloadedBytes;
+        resolveSkipped |= nodeTimings.resolveSkipped;
+    }
+
+    /**
+     * Records the end of the poll
+     */
+    public void finish() {
+        duration = System.currentTimeMillis() - timestamp;
+    }
+
+    public void setDependencyCounts(Map<String, IvyDependencyValue> dependencies) {
+        if (dependencies == null) {
+            return;
+        }
+        dependencyCount = dependencies.size();
+        artifactCount = 0;
+        for (IvyDependencyValue dependency : dependencies.values()) {
+            if (dependency.getArtifacts() != null) {
+                artifactCount += dependency.getArtifacts().size();
+            }
+        }
+    }
+
+    public void addDownloadedBytes(long bytes) {
+        downloadedBytes += bytes;
+    }
+
+    public void setResolveSkipped(boolean resolveSkipped) {
+        this.resolveSkipped = resolveSkipped;
+    }
+
+    @Exported
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Date getTime() {
+        return new Date(timestamp);
+    }
+
+    /**
+     * @return the duration of the poll in milliseconds, from the start of the first phase
+     */
+    @Exported
+    public long getDuration() {
+        return duration;
+    }
+
+    public Map<String, Long> getPhases() {
+        return phases;
+    }
+
+    @Exported(name = "phases")
+    public List<Phase> getPhaseList() {
+        List<Phase> phaseList = new ArrayList<Phase>(phases.size());
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            phaseList.add(new Phase(phase.getKey(), phase.getValue()));
+        }
+        return phaseList;
+    }
+
+    /**
+     * @return the number of resolved dependencies, -1 if the poll didn't resolve them
+     */
+    @Exported
+    public int getDependencyCount() {
+        return dependencyCount;
+    }
+
+    /**
+     * @return the number of resolved artifacts, -1 if the poll didn't resolve them
+     */
+    @Exported
+    public int getArtifactCount() {
+        return artifactCount;
+    }
+
+    @Exported
+    public long getDownloadedBytes() {
+        return downloadedBytes;
+    }
+
+    @Exported
+    public boolean isResolveSkipped() {
+        return resolveSkipped;
+    }
+
+    @ExportedBean(defaultVisibility = 3)
+    public static class Phase {
+
+        private final String name;
+
+        private final long duration;
+
+        public Phase(String name, long duration) {
+            this.name = name;
+            this.duration = duration;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        @Exported
+        public long getDuration() {
+            return duration;
+        }
+    }
+}
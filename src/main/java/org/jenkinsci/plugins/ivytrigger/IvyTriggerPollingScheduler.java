@@ -0,0 +1,296 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * I spread and bound the IvyTrigger polls of the Jenkins instance.
+ * <ul>
+ * <li>A poll started by the cron is delayed by a jitter computed from the job name,
+ * so that the jobs sharing a schedule don't all resolve at the same instant.
+ * The delay is handled by a timer thread, not by the polling threads.</li>
+ * <li>A poll then asks for a slot of the global and of the node limits before checking for modifications.
+ * When the limits are reached, the poll is queued and ends at once, without holding a polling thread:
+ * it is started again when a running poll completes, with a slot kept for it.
+ * Slots are given in the order they were asked for, a poll never gets ahead of the polls already queued.</li>
+ * </ul>
+ * A limit of 0 means no limit. Lowering a limit lets the running polls complete, no new poll starts until they did.
+ */
+public class IvyTriggerPollingScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(IvyTriggerPollingScheduler.class.getName());
+
+    /**
+     * A slot kept for a queued poll is given back if the poll doesn't come to take it in this delay (job disabled, node offline)
+     */
+    static final long RESERVATION_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private static final IvyTriggerPollingScheduler INSTANCE = new IvyTriggerPollingScheduler();
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "IvyTrigger polling scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private int maxConcurrentPolls;
+
+    private int maxConcurrentPollsPerNode;
+
+    private int maxJitterSeconds;
+
+    private int runningPolls;
+
+    private final Map<String, Integer> runningPollsByNode = new HashMap<String, Integer>();
+
+    /**
+     * The queued polls by owner (the trigger), in the order they were queued
+     */
+    private final Map<Object, QueuedPoll> queuedPolls = new LinkedHashMap<Object, QueuedPoll>();
+
+    /**
+     * The slots kept for the queued polls started again
+     */
+    private final Map<Object, QueuedPoll> reservations = new HashMap<Object, QueuedPoll>();
+
+    IvyTriggerPollingScheduler() {
+    }
+
+    public static IvyTriggerPollingScheduler get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Applies new limits to the next polls
+     */
+    public void configure(int maxConcurrentPolls, int maxConcurrentPollsPerNode, int maxJitterSeconds) {
+        List<Runnable> polls;
+        synchronized (this) {
+            this.maxConcurrentPolls = Math.max(0, maxConcurrentPolls);
+            this.maxConcurrentPollsPerNode = Math.max(0, maxConcurrentPollsPerNode);
+            this.maxJitterSeconds = Math.max(0, maxJitterSeconds);
+            polls = dispatch();
+        }
+        start(polls);
+    }
+
+    /**
+     * Computes the jitter of a job: always the same delay for the same job name
+     *
+     * @return the delay in milliseconds, lower than the max jitter
+     */
+    static long getJitterMillis(String jobName, int maxJitterSeconds) {
+        if (maxJitterSeconds <= 0 || jobName == null) {
+            return 0;
+        }
+        long range = TimeUnit.SECONDS.toMillis(maxJitterSeconds);
+        //spread the hash bits, the hash codes of similar job names are close
+        int hash = jobName.hashCode() * 0x9E3779B1;
+        return (hash & 0x7FFFFFFFL) % range;
+    }
+
+    /**
+     * Runs the poll after the jitter of the job
+     */
+    public void schedule(String jobName, Runnable poll) {
+        long jitter;
+        synchronized (this) {
+            jitter = getJitterMillis(jobName, maxJitterSeconds);
+        }
+        if (jitter == 0) {
+            poll.run();
+        } else {
+            timer.schedule(poll, jitter, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Takes a slot for a poll on the node, or queues the poll if the limits are reached
+     *
+     * @param nodeName the name of the polling node, empty for the master
+     * @param owner    the owner of the poll, a poll is queued once per owner
+     * @param restart  starts the poll again, when a slot is kept for it
+     * @return the permit to release when the poll completes, null if the poll was queued
+     */
+    public Permit tryAcquire(String nodeName, Object owner, Runnable restart) {
+        String node = (nodeName == null) ? "" : nodeName;
+        List<Runnable> polls;
+        Permit permit = null;
+        synchronized (this) {
+            long nowNanos = System.nanoTime();
+            QueuedPoll reservation = reservations.remove(owner);
+            if (reservation != null && reservation.node.equals(node)) {
+                permit = new Permit(node, reservation.queuedNanos);
+            } else {
+                if (reservation != null) {
+                    //kept for another node
+                    releaseSlot(reservation.node);
+                }
+                if (!queuedPolls.containsKey(owner) && fits(node)) {
+                    takeSlot(node);
+                    permit = new Permit(node, nowNanos);
+                } else if (!queuedPolls.containsKey(owner)) {
+                    queuedPolls.put(owner, new QueuedPoll(node, restart, nowNanos));
+                }
+            }
+            polls = dispatch();
+        }
+        start(polls);
+        return permit;
+    }
+
+    /**
+     * @return a message for the log of a queued poll
+     */
+    public synchronized String getQueuedMessage() {
+        return String.format("The polling limits are reached (%s polls on Jenkins, %s per node): the poll is queued and will run when a running poll completes.",
+                maxConcurrentPolls, maxConcurrentPollsPerNode);
+    }
+
+    private void release(Permit permit) {
+        List<Runnable> polls;
+        synchronized (this) {
+            releaseSlot(permit.node);
+            polls = dispatch();
+        }
+        start(polls);
+    }
+
+    private boolean fits(String node) {
+        if (maxConcurrentPolls > 0 && runningPolls >= maxConcurrentPolls) {
+            return false;
+        }
+        Integer nodePolls = runningPollsByNode.get(node);
+        return maxConcurrentPollsPerNode == 0 || nodePolls == null || nodePolls < maxConcurrentPollsPerNode;
+    }
+
+    private void takeSlot(String node) {
+        runningPolls++;
+        Integer nodePolls = runningPollsByNode.get(node);
+        runningPollsByNode.put(node, (nodePolls == null) ? 1 : nodePolls + 1);
+    }
+
+    private void releaseSlot(String node) {
+        runningPolls--;
+        Integer nodePolls = runningPollsByNode.get(node);
+        if (nodePolls == null || nodePolls <= 1) {
+            runningPollsByNode.remove(node);
+        } else {
+            runningPollsByNode.put(node, nodePolls - 1);
+        }
+    }
+
+    /**
+     * Keeps a slot for each queued poll that fits the limits, in the queue order
+     *
+     * @return the polls to start again
+     */
+    private List<Runnable> dispatch() {
+        long now = System.currentTimeMillis();
+        Iterator<QueuedPoll> reservationIt = reservations.values().iterator();
+        while (reservationIt.hasNext()) {
+            QueuedPoll reservation = reservationIt.next();
+            if (now - reservation.reservedAt > RESERVATION_TIMEOUT) {
+                reservationIt.remove();
+                releaseSlot(reservation.node);
+            }
+        }
+
+        List<Runnable> polls = new ArrayList<Runnable>();
+        Iterator<Map.Entry<Object, QueuedPoll>> queuedIt = queuedPolls.entrySet().iterator();
+        while (queuedIt.hasNext()) {
+            Map.Entry<Object, QueuedPoll> queued = queuedIt.next();
+            QueuedPoll poll = queued.getValue();
+            if (fits(poll.node)) {
+                takeSlot(poll.node);
+                queuedIt.remove();
+                poll.reservedAt = now;
+                reservations.put(queued.getKey(), poll);
+                polls.add(poll.restart);
+            }
+        }
+        return polls;
+    }
+
+    private void start(List<Runnable> polls) {
+        for (final Runnable poll : polls) {
+            timer.execute(new Runnable() {
+                public void run() {
+                    try {
+                        poll.run();
+                    } catch (RuntimeException re) {
+                        LOGGER.log(Level.WARNING, "Can't start a queued IvyTrigger poll", re);
+                    }
+                }
+            });
+        }
+    }
+
+    synchronized int getRunningPolls() {
+        return runningPolls;
+    }
+
+    synchronized int getQueuedPolls() {
+        return queuedPolls.size();
+    }
+
+    private static class QueuedPoll {
+
+        private final String node;
+
+        private final Runnable restart;
+
+        private final long queuedNanos;
+
+        private long reservedAt;
+
+        private QueuedPoll(String node, Runnable restart, long queuedNanos) {
+            this.node = node;
+            this.restart = restart;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+
+    public class Permit {
+
+        private final String node;
+
+        private final long requestNanos;
+
+        private boolean released;
+
+        private Permit(String node, long requestNanos) {
+            this.node = node;
+            this.requestNanos = requestNanos;
+        }
+
+        /**
+         * @return the {@link System#nanoTime()} at which the poll asked for a slot, before it was queued
+         */
+        public long getRequestNanos() {
+            return requestNanos;
+        }
+
+        public void release() {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+            IvyTriggerPollingScheduler.this.release(this);
+        }
+    }
+}
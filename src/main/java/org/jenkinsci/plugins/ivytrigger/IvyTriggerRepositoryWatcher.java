@@ -0,0 +1,229 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * I start the polls of the triggers watching their file system repositories, when the modules they depend on are published.
+ * <p/>
+ * A poll of a watching trigger gives me the repository directories of its modules (see {@link IvyTriggerEvaluator}).
+ * A trigger is watched from its first scheduled poll on: the signatures of its directories are taken then,
+ * and the triggers started together don't all resolve at once.
+ * A background thread stats these directories every {@link #WATCH_INTERVAL} milliseconds, down to {@link #MAX_DEPTH} levels:
+ * the names, dates and sizes of their files make their signature.
+ * When the signature of a directory has changed and then stayed the same for one interval (the publish is complete),
+ * I start a poll of the triggers watching the directory, only them.
+ * <p/>
+ * The file system events of Java 7 are not available on Java 6; only the directories of the watched modules are stated,
+ * whatever the size of the repository. A scan stats every revision directory of a watched module and every file in them:
+ * its cost grows with the number of revisions and files of the watched modules.
+ * The directories are stated by the master: a repository not visible from the master can't be watched.
+ */
+public class IvyTriggerRepositoryWatcher {
+
+    private static final Logger LOGGER = Logger.getLogger(IvyTriggerRepositoryWatcher.class.getName());
+
+    static final long WATCH_INTERVAL = TimeUnit.SECONDS.toMillis(3);
+
+    static final int MAX_DEPTH = 3;
+
+    private static final IvyTriggerRepositoryWatcher INSTANCE = new IvyTriggerRepositoryWatcher();
+
+    private final Map<IvyTrigger, Set<String>> directoriesByTrigger = new LinkedHashMap<IvyTrigger, Set<String>>();
+
+    private final Map<String, DirectoryState> directories = new HashMap<String, DirectoryState>();
+
+    private ScheduledExecutorService executor;
+
+    IvyTriggerRepositoryWatcher() {
+    }
+
+    public static IvyTriggerRepositoryWatcher get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sets the directories watched for a trigger, replacing the ones of its previous poll
+     *
+     * @return the number of directories visible from the master
+     */
+    public int watch(IvyTrigger trigger, Collection<String> watchedDirectories) {
+        //the directories are stated now, a publish following the poll is seen at the first scan
+        Map<String, Long> signatures = new HashMap<String, Long>();
+        int visibleCount = 0;
+        for (String directory : watchedDirectories) {
+            File directoryFile = new File(directory);
+            signatures.put(directory, getSignature(directoryFile, MAX_DEPTH));
+            if (directoryFile.isDirectory()) {
+                visibleCount++;
+            }
+        }
+
+        synchronized (this) {
+            Set<String> previousDirectories = directoriesByTrigger.put(trigger, new HashSet<String>(watchedDirectories));
+            for (Map.Entry<String, Long> signature : signatures.entrySet()) {
+                if (!directories.containsKey(signature.getKey())) {
+                    directories.put(signature.getKey(), new DirectoryState(signature.getValue()));
+                }
+            }
+            if (previousDirectories != null) {
+                removeUnwatched(previousDirectories);
+            }
+            startWatching();
+        }
+        return visibleCount;
+    }
+
+    /**
+     * Stops watching for a stopped trigger
+     */
+    public synchronized void unwatch(IvyTrigger trigger) {
+        Set<String> previousDirectories = directoriesByTrigger.remove(trigger);
+        if (previousDirectories != null) {
+            removeUnwatched(previousDirectories);
+        }
+    }
+
+    private void removeUnwatched(Set<String> candidates) {
+        Set<String> stillWatched = new HashSet<String>();
+        for (Set<String> watchedDirectories : directoriesByTrigger.values()) {
+            stillWatched.addAll(watchedDirectories);
+        }
+        for (String candidate : candidates) {
+            if (!stillWatched.contains(candidate)) {
+                directories.remove(candidate);
+            }
+        }
+    }
+
+    private synchronized void startWatching() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "IvyTrigger repository watcher");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                for (IvyTrigger trigger : scan()) {
+                    try {
+                        //the repository listing may not show the publish yet: the poll must not skip the resolve
+                        trigger.requestResolve();
+                    } catch (RuntimeException re) {
+                        LOGGER.log(Level.WARNING, "Can't start the poll of an IvyTrigger watching its repository", re);
+                    }
+                }
+            }
+        }, WATCH_INTERVAL, WATCH_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stats the watched directories
+     *
+     * @return the triggers to poll
+     */
+    List<IvyTrigger> scan() {
+        List<String> scannedDirectories;
+        synchronized (this) {
+            scannedDirectories = new ArrayList<String>(directories.keySet());
+        }
+
+        //the file system calls are made without holding the lock, the polls registering their directories don't wait for them
+        Map<String, Long> signatures = new HashMap<String, Long>();
+        for (String directory : scannedDirectories) {
+            signatures.put(directory, getSignature(new File(directory), MAX_DEPTH));
+        }
+
+        synchronized (this) {
+            Set<String> publishedDirectories = new HashSet<String>();
+            for (Map.Entry<String, Long> signature : signatures.entrySet()) {
+                DirectoryState state = directories.get(signature.getKey());
+                if (state != null && state.update(signature.getValue())) {
+                    publishedDirectories.add(signature.getKey());
+                }
+            }
+
+            List<IvyTrigger> triggers = new ArrayList<IvyTrigger>();
+            if (!publishedDirectories.isEmpty()) {
+                for (Map.Entry<IvyTrigger, Set<String>> watchedDirectories : directoriesByTrigger.entrySet()) {
+                    for (String directory : watchedDirectories.getValue()) {
+                        if (publishedDirectories.contains(directory)) {
+                            triggers.add(watchedDirectories.getKey());
+                            break;
+                        }
+                    }
+                }
+            }
+            return triggers;
+        }
+    }
+
+    /**
+     * Computes a signature of the names, dates and sizes of the files of a directory
+     *
+     * @return the signature, 0 if the directory doesn't exist
+     */
+    static long getSignature(File directory, int depth) {
+        String[] names = directory.list();
+        if (names == null) {
+            return 0;
+        }
+        Arrays.sort(names);
+        long signature = 1;
+        for (String name : names) {
+            File file = new File(directory, name);
+            signature = 31 * signature + name.hashCode();
+            signature = 31 * signature + file.lastModified();
+            signature = 31 * signature + file.length();
+            if (depth > 1 && file.isDirectory()) {
+                signature = 31 * signature + getSignature(file, depth - 1);
+            }
+        }
+        return signature;
+    }
+
+    private static class DirectoryState {
+
+        private long signature;
+
+        private boolean changed;
+
+        private DirectoryState(long signature) {
+            this.signature = signature;
+        }
+
+        /**
+         * @return true if the directory changed at the previous scan and is stable since
+         */
+        private boolean update(long newSignature) {
+            if (newSignature != signature) {
+                signature = newSignature;
+                changed = true;
+                return false;
+            }
+            if (changed) {
+                changed = false;
+                return true;
+            }
+            return false;
+        }
+    }
+}
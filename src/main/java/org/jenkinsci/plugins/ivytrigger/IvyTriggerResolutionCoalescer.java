@@ -0,0 +1,85 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * I share the resolves of the jobs polling with the same inputs on the node I am loaded on.
+ * <p/>
+ * The key is a fingerprint of everything the result of a resolve depends on (see {@link IvyTriggerEvaluator}).
+ * A poll asking for a key that is being resolved waits for that resolve and gets its result.
+ * A completed result is never given to a later poll: a module may have been published since.
+ */
+public class IvyTriggerResolutionCoalescer {
+
+    private static final IvyTriggerResolutionCoalescer INSTANCE = new IvyTriggerResolutionCoalescer();
+
+    private final ConcurrentMap<String, Resolution> resolutions = new ConcurrentHashMap<String, Resolution>();
+
+    public static IvyTriggerResolutionCoalescer get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the resolve for the key, or joins the one in progress for the same key
+     */
+    public IvyTriggerEvaluatorResult resolve(String key, Callable<IvyTriggerEvaluatorResult> resolve, XTriggerLog log)
+            throws IOException, ParseException, InterruptedException {
+
+        Resolution resolution = new Resolution(resolve);
+        Resolution existingResolution = resolutions.putIfAbsent(key, resolution);
+        if (existingResolution != null) {
+            log.info("\nAnother job is resolving the same Ivy inputs on this node: sharing its result.");
+            return existingResolution.get();
+        }
+
+        try {
+            resolution.task.run();
+            return resolution.get();
+        } finally {
+            resolutions.remove(key, resolution);
+        }
+    }
+
+    private static class Resolution {
+
+        private final FutureTask<IvyTriggerEvaluatorResult> task;
+
+        private Resolution(Callable<IvyTriggerEvaluatorResult> resolve) {
+            this.task = new FutureTask<IvyTriggerEvaluatorResult>(resolve);
+        }
+
+        private IvyTriggerEvaluatorResult get() throws IOException, ParseException, InterruptedException {
+            try {
+                return task.get();
+            } catch (ExecutionException ee) {
+                Throwable cause = ee.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                if (cause instanceof ParseException) {
+                    throw (ParseException) cause;
+                }
+                if (cause instanceof InterruptedException) {
+                    throw (InterruptedException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                IOException ioe = new IOException(cause.getMessage());
+                ioe.initCause(cause);
+                throw ioe;
+            }
+        }
+    }
+}
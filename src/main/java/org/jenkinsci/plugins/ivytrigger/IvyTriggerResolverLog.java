@@ -3,27 +3,50 @@ package org.jenkinsci.plugins.ivytrigger;
 import org.apache.ivy.util.AbstractMessageLogger;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author Gregory Boissinot
  */
 public class IvyTriggerResolverLog extends AbstractMessageLogger {
 
+    /**
+     * Ivy reports a progress tick for every downloaded buffer, at most one dot is written per interval
+     */
+    static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
     private XTriggerLog log;
 
     private boolean debug;
 
+    private long lastProgressTime;
+
+    private boolean progressWritten;
+
     public IvyTriggerResolverLog(XTriggerLog xTriggerLog, boolean debug) {
         this.log = xTriggerLog;
         this.debug = debug;
     }
 
     @Override
-    protected void doProgress() {
-        log.info(".");
+    protected synchronized void doProgress() {
+        long now = System.currentTimeMillis();
+        if (now - lastProgressTime < PROGRESS_INTERVAL) {
+            return;
+        }
+        lastProgressTime = now;
+        //the dots of a download stay on one line
+        log.getListener().getLogger().print(".");
+        progressWritten = true;
     }
 
     @Override
-    protected void doEndProgress(String msg) {
+    protected synchronized void doEndProgress(String msg) {
+        if (progressWritten) {
+            log.getListener().getLogger().println();
+            progressWritten = false;
+        }
+        lastProgressTime = 0;
         if (msg != null && msg.length() != 0) {
             log.info(msg);
         }
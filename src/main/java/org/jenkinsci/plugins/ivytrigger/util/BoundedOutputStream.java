@@ -0,0 +1,142 @@
+package org.jenkinsci.plugins.ivytrigger.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+/**
+ * An in-memory output stream keeping the beginning and the end of what is written, up to a fixed size.
+ * <p/>
+ * The first bytes fill the head; the following ones go to a ring keeping the last bytes written.
+ * The bytes dropped from the ring are replaced by a notice when the content is read.
+ * <p/>
+ * The sizes are limits: the head and the ring start small and grow with what is written,
+ * the ring is only allocated once the head is full.
+ */
+public class BoundedOutputStream extends OutputStream {
+
+    static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final int headSize;
+
+    private byte[] head;
+
+    private int headCount;
+
+    /**
+     * The ring holds one byte more than the kept tail: the last skipped byte tells whether the tail starts a line.
+     * It doesn't wrap until it has reached its full size.
+     */
+    private byte[] ring;
+
+    private final int tailSize;
+
+    private long tailCount;
+
+    public BoundedOutputStream(int headSize, int tailSize) {
+        this.headSize = headSize;
+        this.head = new byte[Math.min(headSize, INITIAL_BUFFER_SIZE)];
+        this.tailSize = tailSize;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (headCount < headSize) {
+            ensureHeadCapacity(headCount + 1);
+            head[headCount++] = (byte) b;
+        } else {
+            ensureRingCapacity(tailCount + 1);
+            ring[(int) (tailCount % ring.length)] = (byte) b;
+            tailCount++;
+        }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        int headLength = Math.min(length, headSize - headCount);
+        ensureHeadCapacity(headCount + headLength);
+        System.arraycopy(bytes, offset, head, headCount, headLength);
+        headCount += headLength;
+        offset += headLength;
+        length -= headLength;
+        if (length == 0) {
+            return;
+        }
+
+        //only the last bytes of a big write can stay in the ring
+        ensureRingCapacity(tailCount + length);
+        if (length > ring.length) {
+            tailCount += length - ring.length;
+            offset += length - ring.length;
+            length = ring.length;
+        }
+        while (length > 0) {
+            int position = (int) (tailCount % ring.length);
+            int chunk = Math.min(length, ring.length - position);
+            System.arraycopy(bytes, offset, ring, position, chunk);
+            tailCount += chunk;
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void ensureHeadCapacity(int capacity) {
+        if (capacity > head.length) {
+            byte[] grownHead = new byte[Math.min(headSize, Math.max(capacity, 2 * head.length))];
+            System.arraycopy(head, 0, grownHead, 0, headCount);
+            head = grownHead;
+        }
+    }
+
+    private void ensureRingCapacity(long capacity) {
+        int ringSize = tailSize + 1;
+        if (ring == null) {
+            ring = new byte[(int) Math.min(ringSize, Math.max(capacity, INITIAL_BUFFER_SIZE))];
+        } else if (capacity > ring.length && ring.length < ringSize) {
+            //the ring has not wrapped yet, its bytes are in order
+            byte[] grownRing = new byte[(int) Math.min(ringSize, Math.max(capacity, 2L * ring.length))];
+            System.arraycopy(ring, 0, grownRing, 0, (int) tailCount);
+            ring = grownRing;
+        }
+    }
+
+    /**
+     * @return the number of bytes written but not kept
+     */
+    public synchronized long getSkippedCount() {
+        return Math.max(0, tailCount - tailSize);
+    }
+
+    /**
+     * Decodes the kept bytes; when bytes were skipped, the tail starts at its first complete line
+     */
+    public synchronized String toString(String charsetName) throws UnsupportedEncodingException {
+        int stored = (ring == null) ? 0 : (int) Math.min(tailCount, ring.length);
+        ByteArrayOutputStream content = new ByteArrayOutputStream(headCount + stored);
+        content.write(head, 0, headCount);
+
+        int start = (stored == 0) ? 0 : (int) ((tailCount - stored) % ring.length);
+        byte[] orderedTail = new byte[stored];
+        for (int i = 0; i < stored; i++) {
+            orderedTail[i] = ring[(start + i) % ring.length];
+        }
+
+        int tailOffset = 0;
+        long skipped = getSkippedCount();
+        if (skipped > 0) {
+            //the first stored byte is the last skipped one
+            tailOffset = 1;
+            if (orderedTail[0] != '\n') {
+                while (tailOffset < stored && orderedTail[tailOffset] != '\n') {
+                    tailOffset++;
+                }
+                tailOffset = Math.min(stored, tailOffset + 1);
+            }
+            String notice = String.format("%n[... %s bytes of the log were skipped ...]%n", skipped + tailOffset - 1);
+            byte[] noticeBytes = notice.getBytes(charsetName);
+            content.write(noticeBytes, 0, noticeBytes.length);
+        }
+        content.write(orderedTail, tailOffset, stored - tailOffset);
+        return content.toString(charsetName);
+    }
+}
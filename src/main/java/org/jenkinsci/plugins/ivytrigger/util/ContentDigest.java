@@ -0,0 +1,61 @@
+package org.jenkinsci.plugins.ivytrigger.util;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+/**
+ * Builds a SHA-1 fingerprint from a sequence of strings.
+ * Each value is followed by a separator, so that ("ab", "c") and ("a", "bc") give different digests.
+ */
+public class ContentDigest {
+
+    private final MessageDigest digest;
+
+    public ContentDigest() {
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    public ContentDigest add(String value) {
+        try {
+            if (value != null) {
+                digest.update(value.getBytes("UTF-8"));
+            }
+            digest.update((byte) 0);
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee);
+        }
+        return this;
+    }
+
+    /**
+     * Adds all the entries of the map, in its iteration order
+     */
+    public ContentDigest add(Map<String, String> values) {
+        if (values != null) {
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                add(entry.getKey());
+                add(entry.getValue());
+            }
+        }
+        return add("");
+    }
+
+    /**
+     * @return the hex representation of the digest; the digest is reset
+     */
+    public String toHex() {
+        byte[] bytes = digest.digest();
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
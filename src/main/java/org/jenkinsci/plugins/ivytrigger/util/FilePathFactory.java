@@ -4,69 +4,46 @@ import hudson.FilePath;
 import hudson.Util;
 import hudson.model.AbstractProject;
 import hudson.model.Node;
-import org.jenkinsci.lib.xtrigger.XTriggerException;
-import org.jenkinsci.lib.xtrigger.XTriggerLog;
 
-import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class FilePathFactory {
 
 
-    public FilePath getDescriptorFilePath(String filePath,
-                                          AbstractProject job,
-                                          Node pollingNode,
-                                          XTriggerLog log,
-                                          Map<String, String> envVars)
-            throws XTriggerException {
-        try {
-
-            //If the current file path is not specified, don't compute it
-            if (filePath == null) {
-                return null;
-            }
-
-            //0-- Resolve variables for the path
-            String resolvedFilePath = Util.replaceMacro(filePath, envVars);
-
-            //--Try to look for the file
-
-            //1-- Try to find the file in the last workspace if any
-            FilePath workspace = job.getSomeWorkspace();
-            if (workspace != null) {
-                FilePath ivyDescPath = workspace.child(resolvedFilePath);
-                if (ivyDescPath.exists()) {
-                    return ivyDescPath;
-                }
-            }
-
-            //The slave is off
-            if (pollingNode == null) {
-                //try a full path from the master
-                File file = new File(resolvedFilePath);
-                if (file.exists()) {
-                    return new FilePath(file);
-                }
-                log.error(String.format("Can't find the file '%s'.", resolvedFilePath));
-                return null;
-            } else {
-
-                FilePath filePathObject = new FilePath(pollingNode.getRootPath(), resolvedFilePath);
-
-                if (filePathObject.exists()) {
-                    return filePathObject;
-                }
+    /**
+     * Computes the paths where the file is looked for on the polling node, in the order of the lookup:
+     * the last workspace first, then the node root. There is no call to the node: the lookup is done by the node itself.
+     * The last workspace may be on another node (the master for instance): its path is still looked up on the polling node,
+     * where a shared file system makes it visible
+     *
+     * @return the candidate paths, empty if the file path is not specified
+     */
+    public List<String> getDescriptorFileCandidates(String filePath,
+                                                    AbstractProject job,
+                                                    Node pollingNode,
+                                                    Map<String, String> envVars) {
+
+        List<String> candidates = new ArrayList<String>();
+
+        //If the current file path is not specified, don't compute it
+        if (filePath == null) {
+            return candidates;
+        }
 
-                log.error(String.format("Can't find the file '%s'.", resolvedFilePath));
-                return null;
-            }
+        //0-- Resolve variables for the path
+        String resolvedFilePath = Util.replaceMacro(filePath, envVars);
 
-        } catch (IOException ioe) {
-            throw new XTriggerException(ioe);
-        } catch (InterruptedException ie) {
-            throw new XTriggerException(ie);
+        //1-- The last workspace if any, on the polling node or on a file system it shares
+        FilePath workspace = job.getSomeWorkspace();
+        if (workspace != null) {
+            candidates.add(workspace.child(resolvedFilePath).getRemote());
         }
+
+        //2-- The path from the node root, or the full path
+        candidates.add(new FilePath(pollingNode.getRootPath(), resolvedFilePath).getRemote());
+        return candidates;
     }
 
 }
@@ -0,0 +1,95 @@
+package org.jenkinsci.plugins.ivytrigger.util;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the files an Ivy settings file pulls in with {@code <include file="..."/>} and {@code <properties file="..."/>},
+ * and the files they include in turn.
+ * <p/>
+ * The paths are expanded with the given variables and with {@code ivy.settings.dir} and {@code ivy.settings.file};
+ * a relative path is resolved from the working directory, as Ivy does.
+ * A path using a variable defined by a properties file, or an include by url, is not found:
+ * a change of such a file is not seen.
+ */
+public class IncludedSettingsFiles {
+
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("<(?:include|properties)\\b[^>]*?\\bfile\\s*=\\s*[\"']([^\"']*)[\"']");
+
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}]*)\\}");
+
+    private IncludedSettingsFiles() {
+    }
+
+    /**
+     * @return the included files, in the order they are found
+     */
+    public static List<File> find(File settingsFile, String settingsContent, Map<String, String> variables) {
+        Set<File> includedFiles = new LinkedHashSet<File>();
+        find(settingsFile, settingsContent, variables, includedFiles);
+        return new ArrayList<File>(includedFiles);
+    }
+
+    private static void find(File settingsFile, String settingsContent, Map<String, String> variables, Set<File> includedFiles) {
+        Map<String, String> fileVariables = new HashMap<String, String>(variables);
+        fileVariables.put("ivy.settings.dir", settingsFile.getAbsoluteFile().getParent());
+        fileVariables.put("ivy.settings.file", settingsFile.getAbsolutePath());
+
+        Matcher matcher = INCLUDE_PATTERN.matcher(settingsContent);
+        while (matcher.find()) {
+            String path = expand(matcher.group(1), fileVariables);
+            if (path == null) {
+                continue;
+            }
+            File includedFile = new File(path).getAbsoluteFile();
+            if (!includedFiles.add(includedFile) || !matcher.group(0).startsWith("<include") || !includedFile.isFile()) {
+                continue;
+            }
+            try {
+                find(includedFile, FileUtils.readFileToString(includedFile), variables, includedFiles);
+            } catch (IOException ioe) {
+                //Ivy fails on the include, the signature of the file tells it has changed
+            }
+        }
+    }
+
+    /**
+     * @return the path with its variables replaced, null if a variable is unknown
+     */
+    private static String expand(String path, Map<String, String> variables) {
+        Matcher matcher = VARIABLE_PATTERN.matcher(path);
+        StringBuffer expandedPath = new StringBuffer();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            if (value == null) {
+                return null;
+            }
+            matcher.appendReplacement(expandedPath, Matcher.quoteReplacement(value));
+        }
+        matcher.appendTail(expandedPath);
+        return expandedPath.toString();
+    }
+
+    /**
+     * Computes the signature of the included files: their paths, dates and sizes
+     */
+    public static String getSignature(File settingsFile, String settingsContent, Map<String, String> variables) {
+        ContentDigest digest = new ContentDigest();
+        for (File includedFile : find(settingsFile, settingsContent, variables)) {
+            digest.add(includedFile.getPath())
+                    .add(String.valueOf(includedFile.lastModified()))
+                    .add(String.valueOf(includedFile.length()));
+        }
+        return digest.toHex();
+    }
+}
@@ -1,63 +1,49 @@
 package org.jenkinsci.plugins.ivytrigger.util;
 
-import hudson.FilePath;
-import hudson.model.AbstractProject;
-import hudson.model.Node;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jenkinsci.lib.xtrigger.XTriggerException;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 /**
  * @author Mike McLean
  */
 public class PropertiesFileContentExtractor {
 
-    private FilePathFactory filePathFactory;
-
-    public PropertiesFileContentExtractor(FilePathFactory filePathFactory) {
-        this.filePathFactory = filePathFactory;
-    }
-
     /**
-     * Given a propertiesFilePath value, will split that value into multiple paths, read the content from the resolved file names
-     * and return the content.
+     * Reads the content of the properties files found by the polling node, in the order of the given files.
      * <p/>
      * The content of the property files is assumed to be in properties file format. e.g.:
      * prop1=1
      * prop2=2
      * prop3=3
      * <p/>
-     * As an example, if the propertiesFilePath is "a.properties;b.properties", that a.properties contains prop1=2 and that
+     * As an example, if the files are a.properties and b.properties, that a.properties contains prop1=2 and that
      * b.properties contains prop2=3, the method will return:
      * prop1=2
      * prop2=3
      *
-     * @param propertiesFilePath If this value is empty or null, the method will return an empty string.
+     * @param propertiesFiles If this value is empty or null, the method will return an empty string.
      * @return The aggregated content of the properties files
      * @throws XTriggerException
      */
-    public String extractPropertiesFileContents(String propertiesFilePath, AbstractProject job, Node pollingNode, XTriggerLog log, Map<String, String> envVars) throws XTriggerException {
-
-        log.info("Given job  properties file path: " + propertiesFilePath);
+    public String extractPropertiesFileContents(List<File> propertiesFiles, XTriggerLog log) throws XTriggerException {
 
         String fileContent = "";
 
-        if (StringUtils.isEmpty(propertiesFilePath)) {
+        if (propertiesFiles == null) {
             return fileContent;
         }
 
-        List<String> filePaths = splitFilePaths(propertiesFilePath);
         try {
-            for (String path : filePaths) {
-                FilePath fp = filePathFactory.getDescriptorFilePath(path, job, pollingNode, log, envVars);
-                log.info("Resolved properties file value : " + fp.getRemote());
-                fileContent += IOUtils.toString(fp.read()) + "\n";
+            for (File propertiesFile : propertiesFiles) {
+                log.info("Resolved properties file value : " + propertiesFile.getPath());
+                fileContent += FileUtils.readFileToString(propertiesFile) + "\n";
             }
         } catch (IOException ioe) {
             throw new XTriggerException(ioe);
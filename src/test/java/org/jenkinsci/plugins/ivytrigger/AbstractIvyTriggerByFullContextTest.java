@@ -0,0 +1,171 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import hudson.model.Action;
+import hudson.model.Node;
+import hudson.util.StreamTaskListener;
+import org.jenkinsci.lib.xtrigger.XTriggerException;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class AbstractIvyTriggerByFullContextTest {
+
+    private BlockingTrigger trigger;
+
+    private XTriggerLog log;
+
+    @Before
+    public void setUp() throws Exception {
+        trigger = new BlockingTrigger();
+        log = new XTriggerLog(new StreamTaskListener(new ByteArrayOutputStream(), Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void getCurrentContext_doesNotWaitForThePollInProgress() throws Exception {
+        IvyTriggerContext previousContext = createContext();
+        trigger.setNewContext(previousContext);
+        trigger.nextContext = createContext();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> poll = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return trigger.checkIfModified((Node) null, log);
+                }
+            });
+            Assert.assertTrue(trigger.contextRequested.await(10, TimeUnit.SECONDS));
+
+            Assert.assertSame(previousContext, trigger.getCurrentContext());
+
+            trigger.contextReleased.countDown();
+            Assert.assertTrue(poll.get(10, TimeUnit.SECONDS));
+            Assert.assertSame(trigger.nextContext, trigger.getCurrentContext());
+        } finally {
+            trigger.contextReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void compareAndSetContext_keepsAContextRecordedInTheMeantime() throws Exception {
+        IvyTriggerContext previousContext = createContext();
+        IvyTriggerContext recordedContext = createContext();
+        trigger.setNewContext(previousContext);
+        trigger.setNewContext(recordedContext);
+
+        Assert.assertFalse(trigger.compareAndSetContext(previousContext, createContext()));
+        Assert.assertSame(recordedContext, trigger.getCurrentContext());
+        Assert.assertTrue(trigger.compareAndSetContext(recordedContext, previousContext));
+        Assert.assertSame(previousContext, trigger.getCurrentContext());
+    }
+
+    @Test
+    public void checkIfModified_keepsAContextRecordedDuringTheCapture() throws Exception {
+        IvyTriggerContext previousContext = createContext();
+        IvyTriggerContext recordedContext = createContext();
+        trigger.setNewContext(previousContext);
+        //the capture finds nothing new and gives back the context it read when it started
+        trigger.nextContext = previousContext;
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> poll = executor.submit(new Callable<Boolean>() {
+                public Boolean call() throws Exception {
+                    return trigger.checkIfModified((Node) null, log);
+                }
+            });
+            Assert.assertTrue(trigger.contextRequested.await(10, TimeUnit.SECONDS));
+            trigger.setNewContext(recordedContext);
+
+            trigger.contextReleased.countDown();
+            Assert.assertFalse(poll.get(10, TimeUnit.SECONDS));
+            Assert.assertSame(recordedContext, trigger.getCurrentContext());
+        } finally {
+            trigger.contextReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private IvyTriggerContext createContext() {
+        return new IvyTriggerContext(Collections.<String, IvyDependencyValue>emptyMap());
+    }
+
+    /**
+     * Records the context of each poll, the capture of the context waits for the test
+     */
+    private static class BlockingTrigger extends AbstractIvyTriggerByFullContext<IvyTriggerContext> {
+
+        private final CountDownLatch contextRequested = new CountDownLatch(1);
+
+        private final CountDownLatch contextReleased = new CountDownLatch(1);
+
+        private IvyTriggerContext nextContext;
+
+        private BlockingTrigger() throws Exception {
+            super("* * * * *");
+        }
+
+        @Override
+        protected IvyTriggerContext getContext(Node pollingNode, XTriggerLog log) throws XTriggerException {
+            contextRequested.countDown();
+            try {
+                contextReleased.await();
+            } catch (InterruptedException ie) {
+                throw new XTriggerException(ie);
+            }
+            return nextContext;
+        }
+
+        @Override
+        protected boolean checkIfModified(IvyTriggerContext oldContext, IvyTriggerContext newContext, XTriggerLog log) {
+            return compareAndSetContext(oldContext, newContext);
+        }
+
+        @Override
+        public boolean isContextOnStartupFetched() {
+            return false;
+        }
+
+        @Override
+        protected boolean readContextFromFile(XTriggerLog log) {
+            return false;
+        }
+
+        @Override
+        protected String getName() {
+            return "BlockingTrigger";
+        }
+
+        @Override
+        protected Action[] getScheduledActions(Node pollingNode, XTriggerLog log) {
+            return new Action[0];
+        }
+
+        @Override
+        protected File getLogFile() {
+            return null;
+        }
+
+        @Override
+        protected boolean requiresWorkspaceForPolling() {
+            return false;
+        }
+
+        @Override
+        public String getCause() {
+            return "BlockingTrigger";
+        }
+    }
+}
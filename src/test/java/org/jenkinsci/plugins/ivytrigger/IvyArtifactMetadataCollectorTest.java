@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+public class IvyArtifactMetadataCollectorTest {
+
+    @Test
+    public void readAll_givesTheValuesOfTheSequentialReadInTheirOrder() throws Exception {
+        assertSameAsSequentialRead(IvyArtifactMetadataCollector.PARALLEL_THRESHOLD - 1);
+        assertSameAsSequentialRead(4 * IvyArtifactMetadataCollector.PARALLEL_THRESHOLD);
+    }
+
+    @Test
+    public void readAll_keepsTheOtherValuesOfAFailingRead() throws Exception {
+        int readCount = 2 * IvyArtifactMetadataCollector.PARALLEL_THRESHOLD;
+        final int failingRead = readCount / 2;
+        Ivy ivy = Mockito.mock(Ivy.class);
+        List<Callable<String>> reads = createReads(ivy, readCount, failingRead);
+
+        List<Future<String>> values = IvyArtifactMetadataCollector.get().readAll(ivy, reads);
+
+        Assert.assertEquals(readCount, values.size());
+        for (int i = 0; i < readCount; i++) {
+            if (i == failingRead) {
+                try {
+                    values.get(i).get();
+                    Assert.fail("The failing read has a value");
+                } catch (ExecutionException ee) {
+                    Assert.assertTrue(ee.getCause() instanceof IllegalStateException);
+                }
+            } else {
+                Assert.assertEquals("artifact" + i, values.get(i).get());
+            }
+        }
+    }
+
+    private void assertSameAsSequentialRead(int readCount) throws Exception {
+        Ivy ivy = Mockito.mock(Ivy.class);
+        List<Callable<String>> reads = createReads(ivy, readCount, -1);
+        List<String> sequentialValues = new ArrayList<String>();
+        IvyContext.pushNewContext().setIvy(ivy);
+        try {
+            for (Callable<String> read : reads) {
+                sequentialValues.add(read.call());
+            }
+        } finally {
+            IvyContext.popContext();
+        }
+
+        List<Future<String>> values = IvyArtifactMetadataCollector.get().readAll(ivy, reads);
+
+        List<String> collectedValues = new ArrayList<String>();
+        for (Future<String> value : values) {
+            collectedValues.add(value.get());
+        }
+        Assert.assertEquals(sequentialValues, collectedValues);
+    }
+
+    /**
+     * Creates reads checking that they run with the Ivy instance of the poll
+     */
+    private List<Callable<String>> createReads(final Ivy ivy, int readCount, final int failingRead) {
+        List<Callable<String>> reads = new ArrayList<Callable<String>>();
+        for (int i = 0; i < readCount; i++) {
+            final int read = i;
+            reads.add(new Callable<String>() {
+                public String call() throws Exception {
+                    Assert.assertSame(ivy, IvyContext.getContext().getIvy());
+                    if (read == failingRead) {
+                        throw new IllegalStateException("Can't read artifact" + read);
+                    }
+                    return "artifact" + read;
+                }
+            });
+        }
+        return reads;
+    }
+}
@@ -0,0 +1,135 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IvyDependencyDiffTest {
+
+    private Map<String, IvyDependencyValue> previousDependencies;
+    private Map<String, IvyDependencyValue> newDependencies;
+
+    @Before
+    public void setUp() throws Exception {
+        this.previousDependencies = new HashMap<String, IvyDependencyValue>();
+        this.newDependencies = new HashMap<String, IvyDependencyValue>();
+    }
+
+    @Test
+    public void compute_noChanges() throws Exception {
+        previousDependencies.put("org#a;1.0", dependency("1.0", artifact("a", 10L)));
+        newDependencies.put("org#a;1.0", dependency("1.0", artifact("a", 10L)));
+
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+
+        Assert.assertFalse(diff.hasChanges());
+        Assert.assertEquals(0, diff.getChangedDependencyCount());
+    }
+
+    @Test
+    public void compute_addedAndRemovedDependencies() throws Exception {
+        previousDependencies.put("org#a;1.0", dependency("1.0"));
+        newDependencies.put("org#b;2.0", dependency("2.0"));
+
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+
+        Assert.assertEquals(2, diff.getChangedDependencyCount());
+        Assert.assertEquals(Arrays.asList("org#a;1.0"), diff.getRemovedDependencies());
+        Assert.assertEquals(Arrays.asList("org#b;2.0"), diff.getAddedDependencies());
+    }
+
+    @Test
+    public void compute_fixedRevisionChange_matchedByModuleName() throws Exception {
+        previousDependencies.put("org#a;1.0", dependency("1.0"));
+        newDependencies.put("org#a;1.1", dependency("1.1"));
+
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+
+        Assert.assertEquals(1, diff.getChangedDependencyCount());
+        Assert.assertTrue(diff.getAddedDependencies().isEmpty());
+        Assert.assertTrue(diff.getRemovedDependencies().isEmpty());
+        Assert.assertEquals(1, diff.getRevisionChanges().size());
+        Assert.assertEquals("1.0", diff.getRevisionChanges().get(0).getPreviousRevision());
+        Assert.assertEquals("1.1", diff.getRevisionChanges().get(0).getNewRevision());
+    }
+
+    @Test
+    public void compute_artifactChanges() throws Exception {
+        previousDependencies.put("org#a;latest.integration", dependency("1.0", artifact("a", 10L), artifact("a-src", 10L)));
+        newDependencies.put("org#a;latest.integration", dependency("1.0", artifact("a", 20L)));
+
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+
+        Assert.assertEquals(1, diff.getChangedDependencyCount());
+        Assert.assertEquals(2, diff.getArtifactChanges().size());
+        Assert.assertEquals(20L, diff.getArtifactChanges().get(0).getNewArtifact().getLastModificationDate());
+        Assert.assertNull(diff.getArtifactChanges().get(1).getNewArtifact());
+    }
+
+    @Test
+    public void compute_matchesTheArtifactsByNameAndExtensionWhateverTheirOrder() throws Exception {
+        previousDependencies.put("org#a;1.0", dependency("1.0", artifact("a", 10L), new IvyArtifactValue("a", "zip", 10L), artifact("a-src", 10L)));
+        newDependencies.put("org#a;1.0", dependency("1.0", artifact("a-src", 10L), artifact("a", 10L), new IvyArtifactValue("a", "zip", 20L)));
+
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+
+        Assert.assertEquals(1, diff.getArtifactChanges().size());
+        Assert.assertEquals("a.zip", diff.getArtifactChanges().get(0).getPreviousArtifact().getFullName());
+        Assert.assertEquals(20L, diff.getArtifactChanges().get(0).getNewArtifact().getLastModificationDate());
+    }
+
+    @Test
+    public void compute_newArtifactOnly_isNotAChange() throws Exception {
+        previousDependencies.put("org#a;1.0", dependency("1.0", artifact("a", 10L)));
+        newDependencies.put("org#a;1.0", dependency("1.0", artifact("a", 10L), artifact("a-doc", 10L)));
+
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+
+        Assert.assertFalse(diff.hasChanges());
+    }
+
+    @Test
+    public void compute_checksumChange_onlyWhenBothChecksumsAreKnown() throws Exception {
+        previousDependencies.put("org#a;1.0", dependency("1.0", new IvyArtifactValue("a", "jar", 10L, "100")));
+        previousDependencies.put("org#b;1.0", dependency("1.0", artifact("b", 10L)));
+        newDependencies.put("org#a;1.0", dependency("1.0", new IvyArtifactValue("a", "jar", 10L, "120")));
+        newDependencies.put("org#b;1.0", dependency("1.0", new IvyArtifactValue("b", "jar", 10L, "100")));
+
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+
+        Assert.assertEquals(1, diff.getArtifactChanges().size());
+        Assert.assertEquals("org#a;1.0", diff.getArtifactChanges().get(0).getDependencyId());
+    }
+
+    @Test
+    public void log_listsTheFirstChangesOnlyOutsideOfDebug() throws Exception {
+        for (int i = 0; i < IvyDependencyDiff.MAX_SUMMARY_CHANGES + 5; i++) {
+            newDependencies.put("org#added" + i + ";1.0", dependency("1.0"));
+        }
+        IvyDependencyDiff diff = IvyDependencyDiff.compute(previousDependencies, newDependencies);
+        IvyTriggerPollLog pollLog = Mockito.mock(IvyTriggerPollLog.class);
+        Mockito.when(pollLog.isDetailEnabled()).thenReturn(false);
+
+        diff.log(pollLog);
+
+        Mockito.verify(pollLog, Mockito.times(IvyDependencyDiff.MAX_SUMMARY_CHANGES))
+                .summary(Mockito.eq("....The new dependency %s (%s) did not exist before."), Mockito.anyObject(), Mockito.anyObject());
+        Mockito.verify(pollLog).summary("....The other changes are listed in debug mode.");
+    }
+
+    private IvyDependencyValue dependency(String revision, IvyArtifactValue... artifacts) {
+        List<IvyArtifactValue> artifactList = new ArrayList<IvyArtifactValue>(Arrays.asList(artifacts));
+        return new IvyDependencyValue(revision, artifactList);
+    }
+
+    private IvyArtifactValue artifact(String name, long lastModificationDate) {
+        return new IvyArtifactValue(name, "jar", lastModificationDate);
+    }
+}
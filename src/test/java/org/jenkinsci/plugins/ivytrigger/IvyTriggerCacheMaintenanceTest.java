@@ -0,0 +1,214 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+public class IvyTriggerCacheMaintenanceTest {
+
+    private static final int FILE_SIZE = 400 * 1024;
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = File.createTempFile("ivy-trigger-cache", "");
+        cacheDir.delete();
+        cacheDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(cacheDir);
+    }
+
+    @Test
+    public void maintain_evictsLeastRecentlyUsedDownToMaxSize() throws Exception {
+        IvyTriggerCacheMaintenance.CacheIndex cacheIndex = new IvyTriggerCacheMaintenance.CacheIndex(cacheDir);
+        cacheIndex.setLimits(new IvyTriggerCacheSettings(false, 1, 0));
+        File oldest = createCacheFile("org/a/jars/a-1.0.jar");
+        File middle = createCacheFile("org/b/jars/b-1.0.jar");
+        File newest = createCacheFile("org/c/jars/c-1.0.jar");
+        cacheIndex.recordAccess("org#b;1.0", Arrays.asList(middle), 2000);
+        cacheIndex.recordAccess("org#c;1.0", Arrays.asList(newest), 3000);
+        cacheIndex.recordAccess("org#a;1.0", Arrays.asList(oldest), 1000);
+
+        cacheIndex.maintain(4000);
+
+        Assert.assertFalse(oldest.exists());
+        Assert.assertTrue(middle.exists());
+        Assert.assertTrue(newest.exists());
+        Assert.assertTrue(new File(cacheDir, IvyTriggerCacheMaintenance.ACCESS_INDEX_FILE).exists());
+    }
+
+    @Test
+    public void maintain_evictsExpiredEntries() throws Exception {
+        IvyTriggerCacheMaintenance.CacheIndex cacheIndex = new IvyTriggerCacheMaintenance.CacheIndex(cacheDir);
+        cacheIndex.setLimits(new IvyTriggerCacheSettings(false, 0, 1));
+        File expired = createCacheFile("org/a/ivy-1.0.xml");
+        File recent = createCacheFile("org/b/ivy-1.0.xml");
+        long now = System.currentTimeMillis();
+        cacheIndex.recordAccess("org#a;1.0", Arrays.asList(expired), now - TimeUnit.DAYS.toMillis(2));
+        cacheIndex.recordAccess("org#b;1.0", Arrays.asList(recent), now - TimeUnit.HOURS.toMillis(2));
+
+        cacheIndex.maintain(now);
+
+        Assert.assertFalse(expired.exists());
+        Assert.assertTrue(recent.exists());
+    }
+
+    @Test
+    public void maintain_keepsAccessTimesAcrossRestarts() throws Exception {
+        IvyTriggerCacheMaintenance.CacheIndex cacheIndex = new IvyTriggerCacheMaintenance.CacheIndex(cacheDir);
+        cacheIndex.setLimits(new IvyTriggerCacheSettings(false, 1, 0));
+        File oldest = createCacheFile("org/a/jars/a-1.0.jar");
+        File newest = createCacheFile("org/b/jars/b-1.0.jar");
+        cacheIndex.recordAccess("org#a;1.0", Arrays.asList(oldest), 1000);
+        cacheIndex.recordAccess("org#b;1.0", Arrays.asList(newest), 2000);
+        cacheIndex.maintain(3000);
+        Assert.assertTrue(oldest.exists());
+
+        createCacheFile("org/a/jars/a-1.0-sources.jar");
+        IvyTriggerCacheMaintenance.CacheIndex reloadedIndex = new IvyTriggerCacheMaintenance.CacheIndex(cacheDir);
+        reloadedIndex.setLimits(new IvyTriggerCacheSettings(false, 1, 0));
+        reloadedIndex.maintain(4000);
+
+        Assert.assertFalse(oldest.exists());
+        Assert.assertTrue(newest.exists());
+    }
+
+    @Test
+    public void maintain_skipsCacheInUse() throws Exception {
+        IvyTriggerCacheMaintenance.CacheIndex cacheIndex = new IvyTriggerCacheMaintenance.CacheIndex(cacheDir);
+        cacheIndex.setLimits(new IvyTriggerCacheSettings(false, 0, 1));
+        File expired = createCacheFile("org/a/ivy-1.0.xml");
+        cacheIndex.recordAccess("org#a;1.0", Arrays.asList(expired), 0);
+
+        Lock usageLock = cacheIndex.getUsageLock();
+        usageLock.lock();
+        try {
+            cacheIndex.maintain(System.currentTimeMillis());
+        } finally {
+            usageLock.unlock();
+        }
+
+        Assert.assertTrue(expired.exists());
+    }
+
+    @Test
+    public void maintain_letsThePollsUseTheCacheWhileItWalksIt() throws Exception {
+        final CountDownLatch walkStarted = new CountDownLatch(1);
+        final CountDownLatch walkReleased = new CountDownLatch(1);
+        final IvyTriggerMaintenanceIndex cacheIndex = new IvyTriggerMaintenanceIndex(cacheDir, walkStarted, walkReleased);
+        cacheIndex.setLimits(new IvyTriggerCacheSettings(false, 0, 1));
+        File expired = createCacheFile("org/a/ivy-1.0.xml");
+        cacheIndex.recordAccess("org#a;1.0", Arrays.asList(expired), 0);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> maintenance = executor.submit(new Runnable() {
+                public void run() {
+                    cacheIndex.maintain(System.currentTimeMillis());
+                }
+            });
+            Assert.assertTrue(walkStarted.await(10, TimeUnit.SECONDS));
+
+            Lock usageLock = cacheIndex.getUsageLock();
+            Assert.assertTrue(usageLock.tryLock(10, TimeUnit.SECONDS));
+            usageLock.unlock();
+
+            walkReleased.countDown();
+            maintenance.get(10, TimeUnit.SECONDS);
+            Assert.assertFalse(expired.exists());
+        } finally {
+            walkReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void maintain_walksTheCacheAcrossRuns() throws Exception {
+        ListingIndex cacheIndex = new ListingIndex(cacheDir);
+        cacheIndex.setLimits(new IvyTriggerCacheSettings(false, 0, 1));
+        for (String module : new String[]{"a", "b"}) {
+            File moduleDir = new File(cacheDir, "org/" + module);
+            moduleDir.mkdirs();
+            for (int i = 0; i < IvyTriggerCacheMaintenance.MAX_SCANNED_FILES_PER_RUN; i++) {
+                new File(moduleDir, "ivy-" + i + ".xml").createNewFile();
+            }
+        }
+
+        cacheIndex.maintain(System.currentTimeMillis());
+        Assert.assertEquals(3, cacheIndex.listedDirectories.size());
+
+        cacheIndex.maintain(System.currentTimeMillis());
+        Assert.assertEquals(4, cacheIndex.listedDirectories.size());
+        Assert.assertTrue(cacheIndex.listedDirectories.contains(new File(cacheDir, "org/a")));
+        Assert.assertTrue(cacheIndex.listedDirectories.contains(new File(cacheDir, "org/b")));
+    }
+
+    private File createCacheFile(String relativePath) throws Exception {
+        File file = new File(cacheDir, relativePath);
+        file.getParentFile().mkdirs();
+        FileUtils.writeByteArrayToFile(file, new byte[FILE_SIZE]);
+        return file;
+    }
+
+    /**
+     * Records the directories walked
+     */
+    private static class ListingIndex extends IvyTriggerCacheMaintenance.CacheIndex {
+
+        private final List<File> listedDirectories = new ArrayList<File>();
+
+        private ListingIndex(File cacheDir) {
+            super(cacheDir);
+        }
+
+        @Override
+        File[] listChildren(File dir) {
+            listedDirectories.add(new File(dir.getPath()));
+            return super.listChildren(dir);
+        }
+    }
+
+    /**
+     * Waits for the test before walking the cache
+     */
+    private static class IvyTriggerMaintenanceIndex extends IvyTriggerCacheMaintenance.CacheIndex {
+
+        private final CountDownLatch walkStarted;
+
+        private final CountDownLatch walkReleased;
+
+        private IvyTriggerMaintenanceIndex(File cacheDir, CountDownLatch walkStarted, CountDownLatch walkReleased) {
+            super(cacheDir);
+            this.walkStarted = walkStarted;
+            this.walkReleased = walkReleased;
+        }
+
+        @Override
+        File[] listChildren(File dir) {
+            walkStarted.countDown();
+            try {
+                walkReleased.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            return super.listChildren(dir);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.ivy.Ivy;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+public class IvyTriggerChangeFeedTest {
+
+    private IvyTriggerChangeFeed changeFeed;
+
+    private Ivy ivy;
+
+    @Before
+    public void setUp() throws Exception {
+        changeFeed = new IvyTriggerChangeFeed();
+        ivy = Mockito.mock(Ivy.class);
+    }
+
+    @Test
+    public void getRevisionListing_returnsTheListingOfTheWatchedModules() throws Exception {
+        changeFeed.watch("repository", ivy, Collections.singletonMap("org#a", "1.0,"), System.currentTimeMillis());
+
+        Assert.assertEquals("1.0,", changeFeed.getRevisionListing("repository", "org#a"));
+        Assert.assertNull(changeFeed.getRevisionListing("repository", "org#b"));
+        Assert.assertNull(changeFeed.getRevisionListing("otherRepository", "org#a"));
+    }
+
+    @Test
+    public void getListing_returnsOnlyAListingNewerThanTheGivenTime() throws Exception {
+        long pollListedAt = System.currentTimeMillis();
+        changeFeed.watch("repository", ivy, Collections.singletonMap("org#a", "1.0,"), pollListedAt);
+        Assert.assertNull(changeFeed.getListing("repository", "org#a", pollListedAt));
+
+        Mockito.when(ivy.listRevisions("org", "a")).thenReturn(new String[]{"1.0"});
+        Thread.sleep(5);
+        changeFeed.scan();
+
+        IvyTriggerChangeFeed.Listing listing = changeFeed.getListing("repository", "org#a", pollListedAt);
+        Assert.assertEquals("1.0,", listing.getRevisions());
+        Assert.assertTrue(listing.getListedAt() > pollListedAt);
+    }
+
+    @Test
+    public void scan_listsEachModuleOnceAndReturnsTheChangedModules() throws Exception {
+        Map<String, String> listingsA = new HashMap<String, String>();
+        listingsA.put("org#a", "1.0,");
+        listingsA.put("org#b", "2.0,");
+        changeFeed.watch("repository", ivy, listingsA, System.currentTimeMillis());
+        changeFeed.watch("repository", ivy, Collections.singletonMap("org#a", "1.0,"), System.currentTimeMillis());
+        Mockito.when(ivy.listRevisions("org", "a")).thenReturn(new String[]{"1.1", "1.0"});
+        Mockito.when(ivy.listRevisions("org", "b")).thenReturn(new String[]{"2.0"});
+
+        Assert.assertEquals(Arrays.asList("org#a"), changeFeed.scan());
+        Assert.assertEquals("1.0,1.1,", changeFeed.getRevisionListing("repository", "org#a"));
+        Assert.assertTrue(changeFeed.scan().isEmpty());
+        Mockito.verify(ivy, Mockito.times(2)).listRevisions("org", "a");
+    }
+
+    @Test
+    public void watch_keepsTheListingOfTheFeedForAKnownModule() throws Exception {
+        changeFeed.watch("repository", ivy, Collections.singletonMap("org#a", "1.0,"), System.currentTimeMillis());
+        Mockito.when(ivy.listRevisions("org", "a")).thenReturn(new String[]{"1.0", "1.1"});
+        changeFeed.scan();
+
+        changeFeed.watch("repository", ivy, Collections.singletonMap("org#a", "1.0,"), System.currentTimeMillis());
+
+        Assert.assertEquals("1.0,1.1,", changeFeed.getRevisionListing("repository", "org#a"));
+    }
+
+    @Test
+    public void scan_skipsARepositoryBusyResolving() throws Exception {
+        changeFeed.watch("repository", ivy, Collections.singletonMap("org#a", "1.0,"), System.currentTimeMillis());
+        Mockito.when(ivy.listRevisions("org", "a")).thenReturn(new String[]{"1.0", "1.1"});
+        final CountDownLatch resolveStarted = new CountDownLatch(1);
+        final CountDownLatch resolveReleased = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> poll = executor.submit(new Callable<Void>() {
+                public Void call() throws Exception {
+                    Lock ivyUsageLock = IvyTriggerEngineCache.getUsageLock(ivy);
+                    ivyUsageLock.lock();
+                    try {
+                        resolveStarted.countDown();
+                        resolveReleased.await();
+                    } finally {
+                        ivyUsageLock.unlock();
+                    }
+                    return null;
+                }
+            });
+            Assert.assertTrue(resolveStarted.await(10, TimeUnit.SECONDS));
+
+            Assert.assertTrue(changeFeed.scan().isEmpty());
+            Mockito.verify(ivy, Mockito.never()).listRevisions("org", "a");
+
+            resolveReleased.countDown();
+            poll.get(10, TimeUnit.SECONDS);
+            Assert.assertEquals(Arrays.asList("org#a"), changeFeed.scan());
+        } finally {
+            resolveReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IvyTriggerContextSerializerTest {
+
+    private IvyTriggerContextSerializer serializer;
+    private File contextFile;
+
+    @Before
+    public void setUp() throws Exception {
+        this.serializer = new IvyTriggerContextSerializer();
+        this.contextFile = File.createTempFile("IvyTriggerContext", ".ser");
+    }
+
+    @After
+    public void tearDown() {
+        this.contextFile.delete();
+    }
+
+    @Test
+    public void writeAndRead_smallGraph() throws Exception {
+        Map<String, IvyDependencyValue> dependencies = createDependencies(3);
+        dependencies.put("org#nullable;1.0", new IvyDependencyValue(null, null));
+
+        serializer.write(new IvyTriggerContext(dependencies), contextFile);
+
+        Assert.assertFalse(serializer.isLegacyFormat(contextFile));
+        assertSameDependencies(dependencies, serializer.read(contextFile).getDependencies());
+    }
+
+    @Test
+    public void writeAndRead_compressedGraph() throws Exception {
+        Map<String, IvyDependencyValue> dependencies = createDependencies(IvyTriggerContextSerializer.COMPRESSION_THRESHOLD + 1);
+
+        serializer.write(new IvyTriggerContext(dependencies), contextFile);
+
+        assertSameDependencies(dependencies, serializer.read(contextFile).getDependencies());
+    }
+
+    @Test
+    public void writeAndRead_nullDependencies() throws Exception {
+        serializer.write(new IvyTriggerContext(null), contextFile);
+
+        Assert.assertNull(serializer.read(contextFile).getDependencies());
+    }
+
+    @Test
+    public void read_legacyJavaSerialization() throws Exception {
+        Map<String, IvyDependencyValue> dependencies = createDependencies(2);
+        ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(contextFile));
+        out.writeObject(new IvyTriggerContext(dependencies));
+        out.close();
+
+        Assert.assertTrue(serializer.isLegacyFormat(contextFile));
+        assertSameDependencies(dependencies, serializer.read(contextFile).getDependencies());
+    }
+
+    private Map<String, IvyDependencyValue> createDependencies(int count) {
+        Map<String, IvyDependencyValue> dependencies = new HashMap<String, IvyDependencyValue>();
+        for (int i = 0; i < count; i++) {
+            List<IvyArtifactValue> artifacts = new ArrayList<IvyArtifactValue>();
+            artifacts.add(new IvyArtifactValue("module" + i, "jar", 1400000000000L + i));
+            artifacts.add(new IvyArtifactValue("module" + i + "-sources", null, -1L));
+            artifacts.add(new IvyArtifactValue("module" + i + "-javadoc", "jar", 0L, "2048/3f786850e387550fdab836ed7e6dc881de23001b"));
+            dependencies.put("org#module" + i + ";latest.integration", new IvyDependencyValue("1." + i, artifacts));
+        }
+        return dependencies;
+    }
+
+    private void assertSameDependencies(Map<String, IvyDependencyValue> expected, Map<String, IvyDependencyValue> actual) {
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, IvyDependencyValue> entry : expected.entrySet()) {
+            IvyDependencyValue actualValue = actual.get(entry.getKey());
+            Assert.assertEquals(entry.getValue().getRevision(), actualValue.getRevision());
+            List<IvyArtifactValue> expectedArtifacts = entry.getValue().getArtifacts();
+            if (expectedArtifacts == null) {
+                Assert.assertNull(actualValue.getArtifacts());
+                continue;
+            }
+            Assert.assertEquals(expectedArtifacts.size(), actualValue.getArtifacts().size());
+            for (int i = 0; i < expectedArtifacts.size(); i++) {
+                IvyArtifactValue expectedArtifact = expectedArtifacts.get(i);
+                IvyArtifactValue actualArtifact = actualValue.getArtifacts().get(i);
+                Assert.assertEquals(expectedArtifact.getName(), actualArtifact.getName());
+                Assert.assertEquals(expectedArtifact.getExtension(), actualArtifact.getExtension());
+                Assert.assertEquals(expectedArtifact.getLastModificationDate(), actualArtifact.getLastModificationDate());
+                Assert.assertEquals(expectedArtifact.getChecksum(), actualArtifact.getChecksum());
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import hudson.util.StreamTaskListener;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class IvyTriggerContextWriterTest {
+
+    private File contextFile;
+
+    private ExecutorService executor;
+
+    private CountDownLatch writesReleased;
+
+    private IvyTriggerContextSerializer serializer;
+
+    private IvyTriggerContextWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        contextFile = File.createTempFile("IvyTriggerContext", ".ser");
+        contextFile.delete();
+        executor = Executors.newSingleThreadExecutor();
+        //the writes wait for the test
+        writesReleased = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    writesReleased.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        serializer = Mockito.spy(new IvyTriggerContextSerializer());
+        writer = new IvyTriggerContextWriter(executor, serializer);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        writesReleased.countDown();
+        executor.shutdownNow();
+        contextFile.delete();
+    }
+
+    @Test
+    public void submit_writesOnlyTheLastPendingContext() throws Exception {
+        IvyTriggerContext lastContext = createContext("1.2");
+        writer.submit(createContext("1.0"), contextFile);
+        writer.submit(createContext("1.1"), contextFile);
+        writer.submit(lastContext, contextFile);
+        Assert.assertSame(lastContext, writer.getPendingContext(contextFile));
+
+        writesReleased.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        Mockito.verify(serializer).write(lastContext, contextFile);
+        Mockito.verify(serializer, Mockito.times(1)).write(Mockito.any(IvyTriggerContext.class), Mockito.any(File.class));
+        Assert.assertNull(writer.getPendingContext(contextFile));
+        Assert.assertEquals("1.2", serializer.read(contextFile).getDependencies().get("org#a;1.2").getRevision());
+    }
+
+    @Test
+    public void readContextFromFile_usesThePendingContext() throws Exception {
+        IvyTriggerContext pendingContext = createContext("1.0");
+        writer.submit(pendingContext, contextFile);
+        IvyTrigger trigger = new IvyTrigger("* * * * *", "ivy.xml", "ivysettings.xml", null, null, null, false, true, false, false, false, false) {
+            @Override
+            protected File getContextFile() {
+                return contextFile;
+            }
+
+            @Override
+            IvyTriggerContextWriter getContextWriter() {
+                return writer;
+            }
+        };
+
+        Assert.assertTrue(trigger.readContextFromFile(new XTriggerLog(new StreamTaskListener(new ByteArrayOutputStream(), Charset.forName("UTF-8")))));
+
+        Assert.assertSame(pendingContext, trigger.getCurrentContext());
+        Assert.assertFalse(contextFile.exists());
+    }
+
+    private IvyTriggerContext createContext(String revision) {
+        return new IvyTriggerContext(Collections.singletonMap("org#a;" + revision, new IvyDependencyValue(revision, null)));
+    }
+}
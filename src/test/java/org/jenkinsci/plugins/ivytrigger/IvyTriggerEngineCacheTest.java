@@ -0,0 +1,100 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ivy.Ivy;
+import org.jenkinsci.plugins.ivytrigger.util.IncludedSettingsFiles;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+public class IvyTriggerEngineCacheTest {
+
+    private File baseDir;
+
+    private File settingsFile;
+
+    private File includedFile;
+
+    private File cacheDir;
+
+    private File resolutionCacheDir;
+
+    private Map<String, String> variables;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = File.createTempFile("ivy-trigger-engine-cache", "");
+        baseDir.delete();
+        baseDir.mkdirs();
+        settingsFile = new File(baseDir, "ivysettings.xml");
+        FileUtils.writeStringToFile(settingsFile, getSettingsContent());
+        includedFile = new File(baseDir, "resolvers.xml");
+        FileUtils.writeStringToFile(includedFile, "<ivysettings/>");
+        cacheDir = new File(baseDir, "cache");
+        resolutionCacheDir = new File(baseDir, "resolution-cache");
+        variables = Collections.singletonMap("repository", "/repository");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Test
+    public void computeKey_isTheSameForTheSameInputs() throws Exception {
+        Assert.assertEquals(computeKey(), computeKey());
+    }
+
+    @Test
+    public void computeKey_changesWithTheSettingsTheVariablesAndTheCacheDirectories() throws Exception {
+        String key = computeKey();
+        String includedFiles = getIncludedFiles();
+
+        Assert.assertFalse(key.equals(IvyTriggerEngineCache.computeKey(settingsFile, getSettingsContent() + " ", includedFiles, variables, cacheDir, resolutionCacheDir)));
+        Assert.assertFalse(key.equals(IvyTriggerEngineCache.computeKey(settingsFile, getSettingsContent(), includedFiles, Collections.singletonMap("repository", "/other"), cacheDir, resolutionCacheDir)));
+        Assert.assertFalse(key.equals(IvyTriggerEngineCache.computeKey(settingsFile, getSettingsContent(), includedFiles, variables, new File(baseDir, "other"), resolutionCacheDir)));
+        Assert.assertFalse(key.equals(IvyTriggerEngineCache.computeKey(settingsFile, getSettingsContent(), includedFiles, variables, cacheDir, new File(baseDir, "other"))));
+    }
+
+    @Test
+    public void computeKey_changesWithAnIncludedSettingsFile() throws Exception {
+        String key = computeKey();
+
+        FileUtils.writeStringToFile(includedFile, "<ivysettings><resolvers/></ivysettings>");
+        includedFile.setLastModified(includedFile.lastModified() + 2000);
+
+        Assert.assertFalse(key.equals(computeKey()));
+    }
+
+    @Test
+    public void getIvy_evictsTheInstanceOfThePreviousKey() throws Exception {
+        IvyTriggerEngineCache engineCache = new IvyTriggerEngineCache();
+        Ivy ivy = Mockito.mock(Ivy.class);
+        engineCache.putIvy("job", "key", ivy);
+
+        Assert.assertSame(ivy, engineCache.getIvy("job", "key"));
+        Assert.assertNull(engineCache.getIvy("job", "newKey"));
+        Assert.assertEquals(0, engineCache.size());
+        Assert.assertNull(engineCache.getIvy("job", "key"));
+    }
+
+    private String computeKey() {
+        return IvyTriggerEngineCache.computeKey(settingsFile, getSettingsContent(), getIncludedFiles(), variables, cacheDir, resolutionCacheDir);
+    }
+
+    private String getIncludedFiles() {
+        return IncludedSettingsFiles.getSignature(settingsFile, getSettingsContent(), variables);
+    }
+
+    private String getSettingsContent() {
+        return "<ivysettings>\n"
+                + "  <include file=\"${ivy.settings.dir}/resolvers.xml\"/>\n"
+                + "</ivysettings>\n";
+    }
+}
@@ -0,0 +1,154 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.cache.DefaultRepositoryCacheManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+public class IvyTriggerEvaluatorTest {
+
+    private File baseDir;
+
+    private File repositoryDir;
+
+    private File launchDir;
+
+    private File ivyFile;
+
+    private File settingsFile;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = File.createTempFile("ivy-trigger-evaluator", "");
+        baseDir.delete();
+        repositoryDir = new File(baseDir, "repository");
+        launchDir = new File(baseDir, "node");
+        launchDir.mkdirs();
+        ivyFile = new File(baseDir, "ivy.xml");
+        FileUtils.writeStringToFile(ivyFile, "<ivy-module version=\"2.0\">\n"
+                + "  <info organisation=\"org\" module=\"job\"/>\n"
+                + "  <dependencies>\n"
+                + "    <dependency org=\"org\" name=\"a\" rev=\"latest.integration\"/>\n"
+                + "  </dependencies>\n"
+                + "</ivy-module>\n");
+        settingsFile = new File(baseDir, "ivysettings.xml");
+        String root = repositoryDir.getAbsolutePath();
+        FileUtils.writeStringToFile(settingsFile, "<ivysettings>\n"
+                + "  <settings defaultResolver=\"local\"/>\n"
+                + "  <resolvers>\n"
+                + "    <filesystem name=\"local\">\n"
+                + "      <ivy pattern=\"" + root + "/[organisation]/[module]/[revision]/ivy-[revision].xml\"/>\n"
+                + "      <artifact pattern=\"" + root + "/[organisation]/[module]/[revision]/[artifact]-[revision].[ext]\"/>\n"
+                + "    </filesystem>\n"
+                + "  </resolvers>\n"
+                + "</ivysettings>\n");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Test
+    public void invoke_resolvesAPublishNotListedByTheChangeFeedYet() throws Exception {
+        publish("1.0");
+        IvyTriggerEvaluatorResult firstResult = evaluate(null, false);
+        Assert.assertEquals("1.0", getRevision(firstResult));
+
+        publish("1.1");
+        //the change feed hasn't listed the revisions since the previous poll
+        IvyTriggerEvaluatorResult result = evaluate(firstResult, false);
+        Assert.assertFalse(result.isUpToDate());
+        Assert.assertEquals("1.1", getRevision(result));
+        Assert.assertTrue(IvyDependencyDiff.compute(firstResult.getDependencies(), result.getDependencies()).hasChanges());
+
+        Assert.assertTrue(evaluate(result, false).isUpToDate());
+    }
+
+    @Test
+    public void invoke_resolvesAPublishNotifiedRightAfterAPoll() throws Exception {
+        publish("1.0");
+        IvyTriggerEvaluatorResult firstResult = evaluate(null, false);
+
+        publish("1.1");
+        IvyTriggerEvaluatorResult notifiedResult = evaluate(firstResult, true);
+        Assert.assertFalse(notifiedResult.isUpToDate());
+        Assert.assertEquals("1.1", getRevision(notifiedResult));
+        Assert.assertTrue(IvyDependencyDiff.compute(firstResult.getDependencies(), notifiedResult.getDependencies()).hasChanges());
+    }
+
+    @Test
+    public void invoke_sharesTheRepositoryCacheWithAResolutionCachePerJob() throws Exception {
+        publish("1.0");
+        IvyTriggerCacheSettings sharedCache = new IvyTriggerCacheSettings(true, 0, 0);
+
+        Assert.assertEquals("1.0", getRevision(evaluate("jobA", null, false, sharedCache)));
+        Assert.assertEquals("1.0", getRevision(evaluate("jobB", null, false, sharedCache)));
+
+        File sharedDir = new File(launchDir, "ivy-trigger-cache-shared");
+        Assert.assertTrue(new File(sharedDir, "repository/org/a").isDirectory());
+        Assert.assertTrue(new File(sharedDir, "resolution/jobA").list().length > 0);
+        Assert.assertTrue(new File(sharedDir, "resolution/jobB").list().length > 0);
+        Assert.assertFalse(new File(launchDir, "ivy-trigger-cache").exists());
+
+        File cacheDir = new File(sharedDir, "repository");
+        File resolutionCacheDir = new File(sharedDir, "resolution/jobA");
+        Ivy ivy = createEvaluator("jobA", null, false, sharedCache)
+                .newIvyObject(settingsFile, Collections.<String, String>emptyMap(), cacheDir, resolutionCacheDir);
+        DefaultRepositoryCacheManager cacheManager = (DefaultRepositoryCacheManager) ivy.getSettings().getDefaultRepositoryCacheManager();
+        Assert.assertEquals("artifact-lock", cacheManager.getLockStrategy().getName());
+        Assert.assertEquals(resolutionCacheDir.getAbsoluteFile(), ivy.getSettings().getResolutionCacheManager().getResolutionCacheRoot().getAbsoluteFile());
+    }
+
+    private IvyTriggerEvaluatorResult evaluate(IvyTriggerEvaluatorResult previousResult, boolean resolveRequested) throws Exception {
+        return evaluate("job", previousResult, resolveRequested, new IvyTriggerCacheSettings(false, 0, 0));
+    }
+
+    private IvyTriggerEvaluatorResult evaluate(String namespace, IvyTriggerEvaluatorResult previousResult, boolean resolveRequested,
+                                               IvyTriggerCacheSettings cacheSettings) throws Exception {
+        IvyTriggerEvaluatorResult result = createEvaluator(namespace, previousResult, resolveRequested, cacheSettings).invoke(launchDir, null);
+        Assert.assertTrue(result.getLog(), result.isUpToDate() || result.getDependencies() != null);
+        return result;
+    }
+
+    private IvyTriggerEvaluator createEvaluator(String namespace, IvyTriggerEvaluatorResult previousResult, boolean resolveRequested,
+                                                IvyTriggerCacheSettings cacheSettings) {
+        return new IvyTriggerEvaluator(namespace,
+                Collections.singletonList(ivyFile.getAbsolutePath()),
+                Collections.singletonList(settingsFile.getAbsolutePath()),
+                Collections.<List<String>>emptyList(),
+                null,
+                false,
+                Collections.<String, String>emptyMap(),
+                true,
+                false,
+                false,
+                previousResult,
+                resolveRequested,
+                cacheSettings);
+    }
+
+    private String getRevision(IvyTriggerEvaluatorResult result) {
+        Assert.assertEquals(1, result.getDependencies().size());
+        return result.getDependencies().values().iterator().next().getRevision();
+    }
+
+    private void publish(String revision) throws Exception {
+        File moduleDir = new File(repositoryDir, "org/a/" + revision);
+        moduleDir.mkdirs();
+        FileUtils.writeStringToFile(new File(moduleDir, "ivy-" + revision + ".xml"), "<ivy-module version=\"2.0\">\n"
+                + "  <info organisation=\"org\" module=\"a\" revision=\"" + revision + "\" status=\"integration\"/>\n"
+                + "  <publications>\n"
+                + "    <artifact name=\"a\" type=\"jar\" ext=\"jar\"/>\n"
+                + "  </publications>\n"
+                + "</ivy-module>\n");
+        FileUtils.writeStringToFile(new File(moduleDir, "a-" + revision + ".jar"), revision);
+    }
+}
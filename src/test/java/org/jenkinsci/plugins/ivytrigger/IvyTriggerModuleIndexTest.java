@@ -0,0 +1,100 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class IvyTriggerModuleIndexTest {
+
+    private IvyTriggerModuleIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        index = new IvyTriggerModuleIndex();
+    }
+
+    @Test
+    public void getTriggers_returnsTheTriggersDependingOnTheModuleWhateverTheRevision() throws Exception {
+        IvyTrigger triggerA = Mockito.mock(IvyTrigger.class);
+        IvyTrigger triggerAB = Mockito.mock(IvyTrigger.class);
+        index.update(triggerA, createContext("org#a;1.0"));
+        index.update(triggerAB, createContext("org#a;latest.integration", "org#b;2.0"));
+
+        Assert.assertEquals(new HashSet<IvyTrigger>(Arrays.asList(triggerA, triggerAB)), index.getTriggers("org#a"));
+        Assert.assertEquals(Collections.singleton(triggerAB), index.getTriggers("org#b"));
+        Assert.assertTrue(index.getTriggers("org#c").isEmpty());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("org#a", "org#b")), index.getModules());
+    }
+
+    @Test
+    public void update_replacesTheModulesOfThePreviousContext() throws Exception {
+        IvyTrigger trigger = Mockito.mock(IvyTrigger.class);
+        index.update(trigger, createContext("org#a;1.0", "org#b;1.0"));
+        index.update(trigger, createContext("org#b;1.1", "org#c;1.0"));
+
+        Assert.assertTrue(index.getTriggers("org#a").isEmpty());
+        Assert.assertEquals(Collections.singleton(trigger), index.getTriggers("org#b"));
+        Assert.assertEquals(Collections.singleton(trigger), index.getTriggers("org#c"));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("org#b", "org#c")), index.getModules());
+    }
+
+    @Test
+    public void update_keepsTheModulesOfAFailedPoll() throws Exception {
+        IvyTrigger trigger = Mockito.mock(IvyTrigger.class);
+        index.update(trigger, createContext("org#a;1.0"));
+        index.update(trigger, new IvyTriggerContext(null));
+
+        Assert.assertEquals(Collections.singleton(trigger), index.getTriggers("org#a"));
+    }
+
+    @Test
+    public void remove_removesTheTriggerFromAllItsModules() throws Exception {
+        IvyTrigger trigger = Mockito.mock(IvyTrigger.class);
+        IvyTrigger otherTrigger = Mockito.mock(IvyTrigger.class);
+        index.update(trigger, createContext("org#a;1.0", "org#b;1.0"));
+        index.update(otherTrigger, createContext("org#b;1.0"));
+        index.remove(trigger);
+
+        Assert.assertTrue(index.getTriggers("org#a").isEmpty());
+        Assert.assertEquals(Collections.singleton(otherTrigger), index.getTriggers("org#b"));
+        Assert.assertEquals(Collections.singleton("org#b"), index.getModules());
+    }
+
+    @Test
+    public void getTriggers_returnsTheTriggersDependingOnOneOfTheGivenCoordinates() throws Exception {
+        IvyTrigger triggerA = Mockito.mock(IvyTrigger.class);
+        IvyTrigger triggerB = Mockito.mock(IvyTrigger.class);
+        IvyTrigger triggerC = Mockito.mock(IvyTrigger.class);
+        index.update(triggerA, createContext("org#a;latest.integration"));
+        index.update(triggerB, createContext("org#b;1.0", "org#a;1.0"));
+        index.update(triggerC, createContext("org#c;1.0"));
+
+        Assert.assertEquals(new HashSet<IvyTrigger>(Arrays.asList(triggerA, triggerB)),
+                index.getTriggers(Arrays.asList("org#a;1.2", "org:b:1.1", "org#unknown")));
+        Assert.assertEquals(Collections.singleton(triggerC), index.getTriggers(Arrays.asList(" org:c ")));
+    }
+
+    @Test
+    public void parseModuleId_acceptsTheIvyAndTheColonNotations() throws Exception {
+        Assert.assertEquals("org.example#core", IvyTriggerModuleIndex.parseModuleId("org.example#core"));
+        Assert.assertEquals("org.example#core", IvyTriggerModuleIndex.parseModuleId("org.example#core;1.0"));
+        Assert.assertEquals("org.example#core", IvyTriggerModuleIndex.parseModuleId("org.example:core"));
+        Assert.assertEquals("org.example#core", IvyTriggerModuleIndex.parseModuleId("org.example:core:1.0"));
+    }
+
+    private IvyTriggerContext createContext(String... dependencyIds) {
+        Map<String, IvyDependencyValue> dependencies = new LinkedHashMap<String, IvyDependencyValue>();
+        for (String dependencyId : dependencyIds) {
+            String revision = dependencyId.substring(dependencyId.indexOf(';') + 1);
+            dependencies.put(dependencyId, new IvyDependencyValue(revision, Collections.<IvyArtifactValue>emptyList()));
+        }
+        return new IvyTriggerContext(dependencies);
+    }
+}
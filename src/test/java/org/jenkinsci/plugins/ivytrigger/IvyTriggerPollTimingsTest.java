@@ -0,0 +1,61 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class IvyTriggerPollTimingsTest {
+
+    @Test
+    public void addAll_addsTheNodePhasesToTheMasterPhases() throws Exception {
+        IvyTriggerPollTimings nodeTimings = new IvyTriggerPollTimings();
+        nodeTimings.record(IvyTriggerPollTimings.PHASE_RESOLVE, System.nanoTime());
+        nodeTimings.addDownloadedBytes(1024);
+
+        IvyTriggerPollTimings timings = new IvyTriggerPollTimings();
+        timings.record(IvyTriggerPollTimings.PHASE_ENV_VARS, System.nanoTime());
+        timings.addAll(nodeTimings);
+        timings.record(IvyTriggerPollTimings.PHASE_DIFF, System.nanoTime());
+
+        List<IvyTriggerPollTimings.Phase> phases = timings.getPhaseList();
+        Assert.assertEquals(3, phases.size());
+        Assert.assertEquals(IvyTriggerPollTimings.PHASE_ENV_VARS, phases.get(0).getName());
+        Assert.assertEquals(IvyTriggerPollTimings.PHASE_RESOLVE, phases.get(1).getName());
+        Assert.assertEquals(IvyTriggerPollTimings.PHASE_DIFF, phases.get(2).getName());
+        Assert.assertEquals(1024, timings.getDownloadedBytes());
+    }
+
+    @Test
+    public void record_accumulatesTheDurationsOfAPhase() throws Exception {
+        IvyTriggerPollTimings timings = new IvyTriggerPollTimings();
+        long start = System.nanoTime();
+        Thread.sleep(20);
+        timings.record(IvyTriggerPollTimings.PHASE_PERSISTENCE, start);
+        long firstDuration = timings.getPhases().get(IvyTriggerPollTimings.PHASE_PERSISTENCE);
+        timings.record(IvyTriggerPollTimings.PHASE_PERSISTENCE, start);
+
+        Assert.assertTrue(firstDuration >= 20);
+        Assert.assertTrue(timings.getPhases().get(IvyTriggerPollTimings.PHASE_PERSISTENCE) >= 2 * firstDuration);
+        Assert.assertEquals(1, timings.getPhases().size());
+    }
+
+    @Test
+    public void setDependencyCounts_countsTheArtifacts() throws Exception {
+        IvyTriggerPollTimings timings = new IvyTriggerPollTimings();
+        Assert.assertEquals(-1, timings.getDependencyCount());
+
+        Map<String, IvyDependencyValue> dependencies = new HashMap<String, IvyDependencyValue>();
+        dependencies.put("org#a;1.0", new IvyDependencyValue("1.0", Arrays.asList(
+                new IvyArtifactValue("a", "jar", 1000), new IvyArtifactValue("a-sources", "jar", 1000))));
+        dependencies.put("org#b;1.0", new IvyDependencyValue("1.0", Collections.<IvyArtifactValue>emptyList()));
+        timings.setDependencyCounts(dependencies);
+
+        Assert.assertEquals(2, timings.getDependencyCount());
+        Assert.assertEquals(2, timings.getArtifactCount());
+    }
+}
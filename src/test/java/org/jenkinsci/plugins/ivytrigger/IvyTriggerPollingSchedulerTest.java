@@ -0,0 +1,75 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class IvyTriggerPollingSchedulerTest {
+
+    private IvyTriggerPollingScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = new IvyTriggerPollingScheduler();
+    }
+
+    @Test
+    public void tryAcquire_queuesThePollOverTheLimitAndStartsItAgainWithAKeptSlot() throws Exception {
+        scheduler.configure(1, 0, 0);
+        Object runningJob = new Object();
+        Object queuedJob = new Object();
+        Object otherJob = new Object();
+        RestartLatch restart = new RestartLatch();
+
+        IvyTriggerPollingScheduler.Permit permit = scheduler.tryAcquire(null, runningJob, new RestartLatch());
+        Assert.assertNotNull(permit);
+        Assert.assertNull(scheduler.tryAcquire(null, queuedJob, restart));
+        Assert.assertEquals(1, scheduler.getQueuedPolls());
+
+        permit.release();
+        Assert.assertTrue(restart.latch.await(10, TimeUnit.SECONDS));
+        //the slot is kept for the queued poll
+        Assert.assertNull(scheduler.tryAcquire(null, otherJob, new RestartLatch()));
+        IvyTriggerPollingScheduler.Permit queuedPermit = scheduler.tryAcquire(null, queuedJob, restart);
+        Assert.assertNotNull(queuedPermit);
+        Assert.assertEquals(1, scheduler.getRunningPolls());
+        queuedPermit.release();
+    }
+
+    @Test
+    public void tryAcquire_boundsThePollsOfEachNode() throws Exception {
+        scheduler.configure(0, 1, 0);
+
+        Assert.assertNotNull(scheduler.tryAcquire("node1", new Object(), new RestartLatch()));
+        Assert.assertNull(scheduler.tryAcquire("node1", new Object(), new RestartLatch()));
+        Assert.assertNotNull(scheduler.tryAcquire("node2", new Object(), new RestartLatch()));
+    }
+
+    @Test
+    public void configure_neverExceedsTheNewLimitWhileThePollsOfThePreviousOneRun() throws Exception {
+        scheduler.configure(2, 0, 0);
+        IvyTriggerPollingScheduler.Permit first = scheduler.tryAcquire(null, new Object(), new RestartLatch());
+        IvyTriggerPollingScheduler.Permit second = scheduler.tryAcquire(null, new Object(), new RestartLatch());
+
+        scheduler.configure(1, 0, 0);
+        first.release();
+        first.release();
+
+        Assert.assertNull(scheduler.tryAcquire(null, new Object(), new RestartLatch()));
+        second.release();
+        //the slot is kept for the queued poll
+        Assert.assertEquals(1, scheduler.getRunningPolls());
+    }
+
+    private static class RestartLatch implements Runnable {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        public void run() {
+            latch.countDown();
+        }
+    }
+}
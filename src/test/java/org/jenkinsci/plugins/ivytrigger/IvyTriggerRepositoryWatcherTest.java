@@ -0,0 +1,104 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class IvyTriggerRepositoryWatcherTest {
+
+    private File repositoryDir;
+
+    private IvyTriggerRepositoryWatcher watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        repositoryDir = File.createTempFile("ivy-trigger-repository", "");
+        repositoryDir.delete();
+        repositoryDir.mkdirs();
+        watcher = new IvyTriggerRepositoryWatcher();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(repositoryDir);
+    }
+
+    @Test
+    public void scan_pollsTheTriggersOfAPublishedModuleOnceThePublishIsComplete() throws Exception {
+        File moduleA = publish("org/a/1.0");
+        File moduleB = publish("org/b/1.0");
+        IvyTrigger triggerA = Mockito.mock(IvyTrigger.class);
+        IvyTrigger triggerAB = Mockito.mock(IvyTrigger.class);
+        IvyTrigger triggerB = Mockito.mock(IvyTrigger.class);
+        Assert.assertEquals(1, watcher.watch(triggerA, Arrays.asList(moduleA.getPath())));
+        Assert.assertEquals(2, watcher.watch(triggerAB, Arrays.asList(moduleA.getPath(), moduleB.getPath())));
+        Assert.assertEquals(1, watcher.watch(triggerB, Arrays.asList(moduleB.getPath())));
+        Assert.assertTrue(watcher.scan().isEmpty());
+
+        publish("org/a/1.1");
+        //the publish may still be in progress
+        Assert.assertTrue(watcher.scan().isEmpty());
+
+        Assert.assertEquals(Arrays.asList(triggerA, triggerAB), watcher.scan());
+        Assert.assertTrue(watcher.scan().isEmpty());
+    }
+
+    @Test
+    public void watch_takesTheBaselineWithoutPollingTheTrigger() throws Exception {
+        File module = publish("org/a/1.0");
+        IvyTrigger trigger = Mockito.mock(IvyTrigger.class);
+        watcher.watch(trigger, Arrays.asList(module.getPath()));
+
+        Assert.assertTrue(watcher.scan().isEmpty());
+        Assert.assertTrue(watcher.scan().isEmpty());
+
+        publish("org/a/1.1");
+        watcher.scan();
+        Assert.assertEquals(Collections.singletonList(trigger), watcher.scan());
+    }
+
+    @Test
+    public void unwatch_stopsPollingTheTrigger() throws Exception {
+        File module = publish("org/a/1.0");
+        IvyTrigger trigger = Mockito.mock(IvyTrigger.class);
+        watcher.watch(trigger, Arrays.asList(module.getPath()));
+        watcher.unwatch(trigger);
+
+        publish("org/a/1.1");
+        watcher.scan();
+
+        Assert.assertTrue(watcher.scan().isEmpty());
+    }
+
+    @Test
+    public void watch_countsTheDirectoriesNotVisible() throws Exception {
+        IvyTrigger trigger = Mockito.mock(IvyTrigger.class);
+
+        Assert.assertEquals(0, watcher.watch(trigger, Arrays.asList(new File(repositoryDir, "missing").getPath())));
+    }
+
+    @Test
+    public void getModuleDirectory_stopsAtTheFirstTokenAfterTheModule() throws Exception {
+        String root = repositoryDir.getAbsolutePath();
+
+        Assert.assertEquals(new File(root, "org.example/core").getAbsolutePath(),
+                IvyTriggerEvaluator.getModuleDirectory(root + "/[organisation]/[module]/[revision]/ivy-[revision].xml", "org.example", "core"));
+        Assert.assertEquals(new File(root, "org.example").getAbsolutePath(),
+                IvyTriggerEvaluator.getModuleDirectory(root + "/[organisation]/[module]-[revision](-[classifier]).[ext]", "org.example", "core"));
+        Assert.assertNull(IvyTriggerEvaluator.getModuleDirectory("[organisation]-[module].xml", "org.example", "core"));
+    }
+
+    private File publish(String revisionPath) throws Exception {
+        File revisionDir = new File(repositoryDir, revisionPath);
+        revisionDir.mkdirs();
+        FileUtils.writeStringToFile(new File(revisionDir, "ivy.xml"), "<ivy-module version=\"2.0\"/>");
+        return revisionDir.getParentFile();
+    }
+}
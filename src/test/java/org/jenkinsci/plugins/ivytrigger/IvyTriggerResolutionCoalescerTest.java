@@ -0,0 +1,101 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import hudson.util.StreamTaskListener;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class IvyTriggerResolutionCoalescerTest {
+
+    private IvyTriggerResolutionCoalescer coalescer;
+
+    private ByteArrayOutputStream logOutput;
+
+    private XTriggerLog log;
+
+    @Before
+    public void setUp() throws Exception {
+        coalescer = new IvyTriggerResolutionCoalescer();
+        logOutput = new ByteArrayOutputStream();
+        log = new XTriggerLog(new StreamTaskListener(logOutput, Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void resolve_neverGivesACompletedResultToALaterPoll() throws Exception {
+        final AtomicInteger resolveCount = new AtomicInteger();
+        Callable<IvyTriggerEvaluatorResult> resolve = new Callable<IvyTriggerEvaluatorResult>() {
+            public IvyTriggerEvaluatorResult call() throws Exception {
+                resolveCount.incrementAndGet();
+                return createResult();
+            }
+        };
+
+        IvyTriggerEvaluatorResult firstResult = coalescer.resolve("key", resolve, log);
+        IvyTriggerEvaluatorResult secondResult = coalescer.resolve("key", resolve, log);
+
+        Assert.assertEquals(2, resolveCount.get());
+        Assert.assertNotSame(firstResult, secondResult);
+    }
+
+    @Test
+    public void resolve_sharesTheResolveInProgress() throws Exception {
+        final CountDownLatch resolveStarted = new CountDownLatch(1);
+        final CountDownLatch resolveReleased = new CountDownLatch(1);
+        final IvyTriggerEvaluatorResult result = createResult();
+        final AtomicInteger secondResolveCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<IvyTriggerEvaluatorResult> firstPoll = executor.submit(new Callable<IvyTriggerEvaluatorResult>() {
+                public IvyTriggerEvaluatorResult call() throws Exception {
+                    return coalescer.resolve("key", new Callable<IvyTriggerEvaluatorResult>() {
+                        public IvyTriggerEvaluatorResult call() throws Exception {
+                            resolveStarted.countDown();
+                            resolveReleased.await();
+                            return result;
+                        }
+                    }, log);
+                }
+            });
+            Assert.assertTrue(resolveStarted.await(10, TimeUnit.SECONDS));
+            Future<IvyTriggerEvaluatorResult> secondPoll = executor.submit(new Callable<IvyTriggerEvaluatorResult>() {
+                public IvyTriggerEvaluatorResult call() throws Exception {
+                    return coalescer.resolve("key", new Callable<IvyTriggerEvaluatorResult>() {
+                        public IvyTriggerEvaluatorResult call() throws Exception {
+                            secondResolveCount.incrementAndGet();
+                            return createResult();
+                        }
+                    }, log);
+                }
+            });
+            //the second poll logs that it joins the resolve before waiting for it
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (!logOutput.toString("UTF-8").contains("sharing its result") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            resolveReleased.countDown();
+
+            Assert.assertSame(result, firstPoll.get(10, TimeUnit.SECONDS));
+            Assert.assertSame(result, secondPoll.get(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, secondResolveCount.get());
+        } finally {
+            resolveReleased.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private IvyTriggerEvaluatorResult createResult() {
+        return IvyTriggerEvaluatorResult.resolved(Collections.<String, IvyDependencyValue>emptyMap(), "fingerprint", null, 0, null);
+    }
+}
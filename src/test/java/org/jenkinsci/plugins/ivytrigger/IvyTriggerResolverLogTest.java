@@ -0,0 +1,52 @@
+package org.jenkinsci.plugins.ivytrigger;
+
+import hudson.util.StreamTaskListener;
+import org.apache.ivy.util.Message;
+import org.jenkinsci.lib.xtrigger.XTriggerLog;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+public class IvyTriggerResolverLogTest {
+
+    private ByteArrayOutputStream output;
+
+    private XTriggerLog log;
+
+    @Before
+    public void setUp() throws Exception {
+        output = new ByteArrayOutputStream();
+        log = new XTriggerLog(new StreamTaskListener(output, Charset.forName("UTF-8")));
+    }
+
+    @Test
+    public void progress_writesAtMostOneDotPerInterval() throws Exception {
+        IvyTriggerResolverLog resolverLog = new IvyTriggerResolverLog(log, false);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 100000; i++) {
+            resolverLog.progress();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        resolverLog.endProgress("downloaded");
+
+        String content = output.toString("UTF-8");
+        int dots = content.indexOf('\n');
+        Assert.assertTrue(content, content.substring(0, dots).matches("\\.+"));
+        Assert.assertTrue(content, dots <= 1 + elapsed / IvyTriggerResolverLog.PROGRESS_INTERVAL);
+        Assert.assertTrue(content, content.substring(dots + 1).contains("downloaded"));
+    }
+
+    @Test
+    public void log_writesTheDebugMessagesInDebugModeOnly() throws Exception {
+        new IvyTriggerResolverLog(log, false).log("resolving quietly", Message.MSG_INFO);
+        new IvyTriggerResolverLog(log, true).log("resolving loudly", Message.MSG_INFO);
+
+        String content = output.toString("UTF-8");
+        Assert.assertFalse(content.contains("resolving quietly"));
+        Assert.assertTrue(content.contains("resolving loudly"));
+    }
+}
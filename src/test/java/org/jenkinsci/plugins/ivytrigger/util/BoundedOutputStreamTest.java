@@ -0,0 +1,68 @@
+package org.jenkinsci.plugins.ivytrigger.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedOutputStreamTest {
+
+    @Test
+    public void toString_keepsEverythingUnderTheLimit() throws Exception {
+        BoundedOutputStream out = new BoundedOutputStream(8, 8);
+        out.write("line1\nline2\n".getBytes("UTF-8"));
+
+        Assert.assertEquals(0, out.getSkippedCount());
+        Assert.assertEquals("line1\nline2\n", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void toString_keepsHeadAndCompleteTailLines() throws Exception {
+        BoundedOutputStream out = new BoundedOutputStream(6, 12);
+        out.write("head1\n".getBytes("UTF-8"));
+        for (int i = 0; i < 10; i++) {
+            out.write(("line" + i + "\n").getBytes("UTF-8"));
+        }
+
+        String content = out.toString("UTF-8");
+
+        Assert.assertEquals(48, out.getSkippedCount());
+        Assert.assertTrue(content.startsWith("head1\n"));
+        Assert.assertTrue(content.contains("[... 48 bytes of the log were skipped ...]"));
+        Assert.assertTrue(content.endsWith("line8\nline9\n"));
+    }
+
+    @Test
+    public void write_singleBytesAndBigWritesGiveTheSameTail() throws Exception {
+        byte[] bytes = "a\nbb\nccc\ndddd\neeeee\n".getBytes("UTF-8");
+        BoundedOutputStream bigWrite = new BoundedOutputStream(0, 7);
+        bigWrite.write(bytes);
+        BoundedOutputStream singleBytes = new BoundedOutputStream(0, 7);
+        for (byte b : bytes) {
+            singleBytes.write(b);
+        }
+
+        Assert.assertEquals(bigWrite.getSkippedCount(), singleBytes.getSkippedCount());
+        Assert.assertEquals(bigWrite.toString("UTF-8"), singleBytes.toString("UTF-8"));
+        Assert.assertTrue(bigWrite.toString("UTF-8").endsWith("eeeee\n"));
+    }
+
+    @Test
+    public void write_keepsTheContentWhileTheBuffersGrow() throws Exception {
+        int size = 3 * BoundedOutputStream.INITIAL_BUFFER_SIZE;
+        BoundedOutputStream out = new BoundedOutputStream(size, size);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; expected.length() < 2 * size - 100; i++) {
+            String line = "line" + i + "\n";
+            expected.append(line);
+            if (i % 2 == 0) {
+                out.write(line.getBytes("UTF-8"));
+            } else {
+                for (byte b : line.getBytes("UTF-8")) {
+                    out.write(b);
+                }
+            }
+        }
+
+        Assert.assertEquals(0, out.getSkippedCount());
+        Assert.assertEquals(expected.toString(), out.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,51 @@
+package org.jenkinsci.plugins.ivytrigger.util;
+
+import hudson.FilePath;
+import hudson.model.AbstractProject;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FilePathFactoryTest {
+
+    private File workspaceDir;
+
+    private File nodeRootDir;
+
+    private AbstractProject job;
+
+    private Node pollingNode;
+
+    @Before
+    public void setUp() throws Exception {
+        workspaceDir = new File("/master/workspace/job").getAbsoluteFile();
+        nodeRootDir = new File("/slave/root").getAbsoluteFile();
+        job = Mockito.mock(AbstractProject.class);
+        pollingNode = Mockito.mock(Node.class);
+        Mockito.when(pollingNode.getRootPath()).thenReturn(new FilePath(nodeRootDir));
+        Mockito.when(pollingNode.getChannel()).thenReturn(Mockito.mock(VirtualChannel.class));
+    }
+
+    @Test
+    public void getDescriptorFileCandidates_keepsTheWorkspaceOfAnotherNode() throws Exception {
+        //the workspace is on the master, a shared file system can make it visible from the polling node
+        Mockito.when(job.getSomeWorkspace()).thenReturn(new FilePath(workspaceDir));
+
+        Assert.assertEquals(Arrays.asList(new FilePath(workspaceDir).child("ivy.xml").getRemote(), new FilePath(new FilePath(nodeRootDir), "ivy.xml").getRemote()),
+                new FilePathFactory().getDescriptorFileCandidates("ivy.xml", job, pollingNode, Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void getDescriptorFileCandidates_looksUpTheNodeRootWithoutWorkspace() throws Exception {
+        Assert.assertEquals(Arrays.asList(new FilePath(new FilePath(nodeRootDir), "ivy.xml").getRemote()),
+                new FilePathFactory().getDescriptorFileCandidates("ivy.xml", job, pollingNode, Collections.<String, String>emptyMap()));
+        Assert.assertTrue(new FilePathFactory().getDescriptorFileCandidates(null, job, pollingNode, Collections.<String, String>emptyMap()).isEmpty());
+    }
+}
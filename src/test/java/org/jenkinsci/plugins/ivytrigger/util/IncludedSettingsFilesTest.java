@@ -0,0 +1,45 @@
+package org.jenkinsci.plugins.ivytrigger.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class IncludedSettingsFilesTest {
+
+    private File baseDir;
+
+    @Before
+    public void setUp() throws Exception {
+        baseDir = File.createTempFile("ivy-trigger-included-settings", "");
+        baseDir.delete();
+        new File(baseDir, "common").mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(baseDir);
+    }
+
+    @Test
+    public void find_followsTheIncludesAndSkipsTheUnknownVariables() throws Exception {
+        File settingsFile = new File(baseDir, "ivysettings.xml");
+        File includedFile = new File(baseDir, "common/resolvers.xml");
+        File propertiesFile = new File(baseDir, "common/repository.properties");
+        File nestedPropertiesFile = new File(baseDir, "common/nested.properties");
+        String settingsContent = "<ivysettings>\n"
+                + "  <properties file=\"${root}/common/repository.properties\"/>\n"
+                + "  <include file=\"${ivy.settings.dir}/common/resolvers.xml\"/>\n"
+                + "  <include file=\"${defined.by.a.properties.file}/other.xml\"/>\n"
+                + "</ivysettings>\n";
+        FileUtils.writeStringToFile(includedFile, "<ivysettings><properties file=\"${ivy.settings.dir}/nested.properties\"/></ivysettings>");
+
+        Assert.assertEquals(Arrays.asList(propertiesFile, includedFile, nestedPropertiesFile),
+                IncludedSettingsFiles.find(settingsFile, settingsContent, Collections.singletonMap("root", baseDir.getAbsolutePath())));
+    }
+}
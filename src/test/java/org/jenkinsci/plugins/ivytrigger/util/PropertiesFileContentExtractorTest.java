@@ -1,81 +1,64 @@
 package org.jenkinsci.plugins.ivytrigger.util;
 
-import hudson.FilePath;
-import hudson.model.FreeStyleProject;
-import hudson.model.Node;
+import hudson.util.StreamTaskListener;
+import org.apache.commons.io.FileUtils;
 import org.jenkinsci.lib.xtrigger.XTriggerLog;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
-
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
-@RunWith(PowerMockRunner.class)
-@PrepareForTest({FilePath.class})
 public class PropertiesFileContentExtractorTest {
     private PropertiesFileContentExtractor propertiesFileContentExtractor;
-    private FilePathFactory filePathFactory;
 
-    private FreeStyleProject job;
-    private Node pollingNode;
     private XTriggerLog log;
-    private Map<String, String> envVars;
+    private File propertiesDir;
 
     @Before
     public void setUp() throws Exception {
-        this.filePathFactory = mock(FilePathFactory.class);
-        this.propertiesFileContentExtractor = new PropertiesFileContentExtractor(filePathFactory);
-        this.envVars = new HashMap<String, String>();
-        this.log = new XTriggerLog(null); // XTriggerLog can deal with the null listener, so good enough.
+        this.propertiesFileContentExtractor = new PropertiesFileContentExtractor();
+        this.log = new XTriggerLog(new StreamTaskListener(new ByteArrayOutputStream(), Charset.forName("UTF-8")));
+        this.propertiesDir = File.createTempFile("properties", "");
+        this.propertiesDir.delete();
+        this.propertiesDir.mkdirs();
     }
 
     @After
-    public void tearDown() {
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(propertiesDir);
         this.propertiesFileContentExtractor = null;
-        this.filePathFactory = null;
-        this.envVars = null;
         this.log = null;
-        ;
     }
 
     @Test
     public void getContent_withEmptyPropertiesPath() throws Exception {
-        String content = propertiesFileContentExtractor.extractPropertiesFileContents(null, job, pollingNode, log, envVars);
+        String content = propertiesFileContentExtractor.extractPropertiesFileContents(Collections.<File>emptyList(), log);
 
         Assert.assertEquals("", content);
     }
 
     @Test
     public void getContent_withNullPropertiesPath() throws Exception {
-        String content = propertiesFileContentExtractor.extractPropertiesFileContents(null, job, pollingNode, log, envVars);
+        String content = propertiesFileContentExtractor.extractPropertiesFileContents(null, log);
 
         Assert.assertEquals("", content);
     }
 
     @Test
     public void getContent_WithContentSingleFilePath() throws Exception {
-        FilePath filePath1 = PowerMockito.mock(FilePath.class);
-        FilePath filePath2 = PowerMockito.mock(FilePath.class);
-
-        when(filePath1.read()).thenReturn(stringToInputStream("1=one\n2=two"));
-        when(filePath2.read()).thenReturn(stringToInputStream("3=three\n4=four"));
+        File file1 = new File(propertiesDir, "a.properties");
+        File file2 = new File(propertiesDir, "b.properties");
+        FileUtils.writeStringToFile(file1, "1=one\n2=two");
+        FileUtils.writeStringToFile(file2, "3=three\n4=four");
 
-        when(filePathFactory.getDescriptorFilePath("a/", job, pollingNode, log, envVars)).thenReturn(filePath1);
-        when(filePathFactory.getDescriptorFilePath("b/", job, pollingNode, log, envVars)).thenReturn(filePath2);
-
-        String content = this.propertiesFileContentExtractor.extractPropertiesFileContents("a/;b/", job, pollingNode, log, envVars);
+        String content = this.propertiesFileContentExtractor.extractPropertiesFileContents(Arrays.asList(file1, file2), log);
 
         Assert.assertEquals("1=one\n2=two\n3=three\n4=four\n", content);
     }
@@ -105,8 +88,4 @@ public class PropertiesFileContentExtractorTest {
         Assert.assertEquals("/abcd/", filePaths.get(0));
         Assert.assertEquals("/efgh", filePaths.get(1));
     }
-
-    private InputStream stringToInputStream(String props) {
-        return new ByteArrayInputStream(props.getBytes());
-    }
 }